@@ -18,10 +18,27 @@
 package com.ancevt.d2d2.display;
 
 import com.ancevt.d2d2.event.BaseEventDispatcher;
+import com.ancevt.d2d2.event.Event;
+import com.ancevt.d2d2.event.EventListener;
 
 public abstract class BaseDisplayObject extends BaseEventDispatcher implements DisplayObject {
 
+    // resolved once per class: does it override any of the per-frame hooks
+    private static final ClassValue<Boolean> OVERRIDES_FRAME_HOOKS = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("onEnterFrame").getDeclaringClass() != DisplayObject.class
+                    || type.getMethod("onLoopUpdate").getDeclaringClass() != DisplayObject.class
+                    || type.getMethod("onExitFrame").getDeclaringClass() != DisplayObject.class;
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
     private static int displayObjectIdCounter;
+    private static int transformCounter;
     private final int displayObjectId;
     private String name;
     private SimpleContainer parent;
@@ -34,10 +51,13 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
     private boolean visible = true;
     private int zOrderIndex;
     private boolean integerPixelAlignmentEnabled = true;
+    private int changeFlags;
+    private boolean updateActive;
+    private int transformStamp;
 
     protected BaseDisplayObject() {
         displayObjectId = displayObjectIdCounter++;
-        name = "_" + getClass().getSimpleName() + getDisplayObjectId();
+        updateActive = OVERRIDES_FRAME_HOOKS.get(getClass());
     }
 
     @Override
@@ -47,6 +67,8 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
 
     @Override
     public String getName() {
+        // the default name is built on first request, most objects are never asked for it
+        if (name == null) name = "_" + getClass().getSimpleName() + displayObjectId;
         return name;
     }
 
@@ -67,6 +89,7 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
 
     final void setParent(final SimpleContainer container) {
         this.parent = container;
+        transformStamp = ++transformCounter;
     }
 
     @Override
@@ -87,7 +110,10 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
 
     @Override
     public void setX(float value) {
+        if (x == value) return;
         this.x = value;
+        markChanged(ChangeTracker.X);
+        invalidateBounds();
     }
 
     @Override
@@ -97,7 +123,10 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
 
     @Override
     public void setY(float value) {
+        if (y == value) return;
         this.y = value;
+        markChanged(ChangeTracker.Y);
+        invalidateBounds();
     }
 
     @Override
@@ -113,7 +142,10 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
 
     @Override
     public void setScaleX(float value) {
+        if (scaleX == value) return;
         this.scaleX = value;
+        markChanged(ChangeTracker.SCALE_X);
+        invalidateBounds();
     }
 
     @Override
@@ -123,7 +155,10 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
 
     @Override
     public void setScaleY(float value) {
+        if (scaleY == value) return;
         this.scaleY = value;
+        markChanged(ChangeTracker.SCALE_Y);
+        invalidateBounds();
     }
 
     @Override
@@ -145,6 +180,7 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
 
     @Override
     public void setVisible(boolean value) {
+        if (visible != value) markChanged(ChangeTracker.VISIBLE);
         this.visible = value;
     }
 
@@ -155,7 +191,10 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
 
     @Override
     public void setRotation(float degrees) {
+        if (rotation == degrees) return;
         rotation = degrees;
+        markChanged(ChangeTracker.ROTATION);
+        invalidateBounds();
     }
 
     @Override
@@ -165,7 +204,10 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
 
     @Override
     public void rotate(float toRotation) {
+        if (toRotation == 0f) return;
         rotation += toRotation;
+        markChanged(ChangeTracker.ROTATION);
+        invalidateBounds();
     }
 
     @Override
@@ -264,6 +306,7 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
 
     @Override
     public void setAlpha(float value) {
+        if (alpha != value) markChanged(ChangeTracker.ALPHA);
         this.alpha = value;
     }
 
@@ -274,6 +317,7 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
 
     @Override
     public void toAlpha(float value) {
+        if (value != 1f) markChanged(ChangeTracker.ALPHA);
         alpha *= value;
     }
 
@@ -287,8 +331,96 @@ public abstract class BaseDisplayObject extends BaseEventDispatcher implements D
         return integerPixelAlignmentEnabled;
     }
 
+    /**
+     * Records a change of replicated state, see {@link ChangeTracker}
+     */
+    protected final void markChanged(int flags) {
+        if (parent != null) parent.invalidateCache();
+        if (!ChangeTracker.isEnabled()) return;
+        if (changeFlags == 0) ChangeTracker.add(this);
+        changeFlags |= flags;
+    }
+
+    /**
+     * Tells cached ancestors that the look of this object changed without a change of
+     * its transform or size, see {@link SimpleContainer#setCacheAsTexture(boolean)}
+     */
+    protected final void invalidateAncestorCache() {
+        if (parent != null) parent.invalidateCache();
+    }
+
+    /**
+     * Tells the parent that the area covered by this object changed,
+     * to be called by subclasses whenever their size changes
+     */
+    protected final void invalidateBounds() {
+        transformStamp = ++transformCounter;
+        if (parent != null) parent.invalidateContentBounds();
+    }
+
+    /**
+     * @return counter value of the last change to the transform, size or parent of this object,
+     * newer than any change made before it
+     */
+    final int getTransformStamp() {
+        return transformStamp;
+    }
+
+    public final int getChangeFlags() {
+        return changeFlags;
+    }
+
+    final void clearChangeFlags() {
+        changeFlags = 0;
+    }
+
+    /**
+     * @return true if the object has anything to do per frame: it overrides a frame hook,
+     * listens to ENTER_FRAME, LOOP_UPDATE or EXIT_FRAME, or is a playing {@link Playable}.
+     * Renderers skip the per-frame calls for all other objects.
+     */
+    public final boolean isUpdateActive() {
+        return updateActive;
+    }
+
+    protected final void refreshUpdateActivity() {
+        updateActive = OVERRIDES_FRAME_HOOKS.get(getClass())
+            || hasEventListener(Event.ENTER_FRAME)
+            || hasEventListener(Event.LOOP_UPDATE)
+            || hasEventListener(Event.EXIT_FRAME)
+            || (this instanceof Playable playable && playable.isPlaying());
+    }
+
+    @Override
+    public void addEventListener(String type, EventListener listener) {
+        super.addEventListener(type, listener);
+        if (isFrameEvent(type)) refreshUpdateActivity();
+    }
+
+    @Override
+    public void removeEventListener(String type, EventListener listener) {
+        super.removeEventListener(type, listener);
+        if (isFrameEvent(type)) refreshUpdateActivity();
+    }
+
+    @Override
+    public void removeAllEventListeners(String type) {
+        super.removeAllEventListeners(type);
+        if (isFrameEvent(type)) refreshUpdateActivity();
+    }
+
+    @Override
+    public void removeAllEventListeners() {
+        super.removeAllEventListeners();
+        refreshUpdateActivity();
+    }
+
+    private static boolean isFrameEvent(String type) {
+        return Event.ENTER_FRAME.equals(type) || Event.LOOP_UPDATE.equals(type) || Event.EXIT_FRAME.equals(type);
+    }
+
     @Override
     public String toString() {
-        return getClass().getSimpleName() + "{" + "displayObjectId=" + displayObjectId + ", name='" + name + "'}";
+        return getClass().getSimpleName() + "{" + "displayObjectId=" + displayObjectId + ", name='" + getName() + "'}";
     }
 }
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+
+/**
+ * Collects display objects whose replicated state changed since the last {@link #clear()},
+ * so consumers (e.g. {@link com.ancevt.d2d2.replication.ReplicationEncoder}) visit only what changed.
+ * Disabled by default, setters then only pay for a single flag check.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ChangeTracker {
+
+    public static final int X = 1;
+    public static final int Y = 1 << 1;
+    public static final int SCALE_X = 1 << 2;
+    public static final int SCALE_Y = 1 << 3;
+    public static final int ROTATION = 1 << 4;
+    public static final int ALPHA = 1 << 5;
+    public static final int VISIBLE = 1 << 6;
+    public static final int FRAME = 1 << 7;
+    public static final int TEXT = 1 << 8;
+    public static final int PARENT = 1 << 9;
+
+    private static boolean enabled;
+    private static BaseDisplayObject[] changed = new BaseDisplayObject[256];
+    private static int size;
+
+    public static void setEnabled(boolean value) {
+        if (!value) clear();
+        enabled = value;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void add(BaseDisplayObject displayObject) {
+        if (size == changed.length) {
+            changed = Arrays.copyOf(changed, size * 2);
+        }
+        changed[size++] = displayObject;
+    }
+
+    public static int size() {
+        return size;
+    }
+
+    /**
+     * @return changed display object in the order its first change was made
+     */
+    public static BaseDisplayObject get(int index) {
+        return changed[index];
+    }
+
+    public static void clear() {
+        for (int i = 0; i < size; i++) {
+            changed[i].clearChangeFlags();
+            changed[i] = null;
+        }
+        size = 0;
+    }
+}
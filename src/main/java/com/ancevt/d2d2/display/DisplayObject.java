@@ -120,6 +120,26 @@ public interface DisplayObject extends EventDispatcher {
 
     float getHeight();
 
+    /**
+     * Local axis-aligned box of what the object draws, before its own position, scale and rotation.
+     * By default it spans from the origin to width and height; a box of zero size means the extent is unknown.
+     */
+    default float getBoundsMinX() {
+        return 0f;
+    }
+
+    default float getBoundsMinY() {
+        return 0f;
+    }
+
+    default float getBoundsMaxX() {
+        return getWidth();
+    }
+
+    default float getBoundsMaxY() {
+        return getHeight();
+    }
+
     float getScaledWidth();
 
     float getScaledHeight();
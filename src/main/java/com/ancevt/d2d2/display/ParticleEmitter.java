@@ -0,0 +1,340 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display;
+
+import com.ancevt.d2d2.display.texture.TextureClip;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Draws many short-lived copies of one {@link TextureClip} as a single display object.
+ * <p>
+ * Particle state is kept in parallel float arrays indexed by slot and advanced in one loop per
+ * frame, so an effect with thousands of particles costs one node, no listeners and no child
+ * list copies. Dead slots go to a free list and are reused by the next {@link #emit}.
+ * <p>
+ * All rates are per frame, like the rest of the display code. Renderers draw slots
+ * {@code 0 until getSlotCount()} whose {@link #isAlive(int)} is true, each as the texture clip
+ * centered at {@code (x, y)} with its own scale, rotation and alpha multiplied by the emitter's.
+ */
+public class ParticleEmitter extends BaseDisplayObject implements Colored {
+
+    private static final int PARALLEL_THRESHOLD = 16384;
+    private static final int PARALLEL_CHUNK = 4096;
+
+    @Getter
+    private TextureClip textureClip;
+
+    @Getter
+    private final int capacity;
+
+    private final float[] x;
+    private final float[] y;
+    private final float[] velocityX;
+    private final float[] velocityY;
+    private final float[] rotation;
+    private final float[] spin;
+    private final float[] scale;
+    private final float[] scaleVelocity;
+    private final float[] alpha;
+    private final float[] alphaVelocity;
+    private final float[] life;
+
+    private final int[] freeSlots;
+    private int freeCount;
+    private int slotCount;
+    private int aliveCount;
+
+    // per-chunk dead slot lists of the parallel update, chunk k writes from index k * PARALLEL_CHUNK
+    private int[] deadScratch;
+    private int[] deadCounts;
+
+    private int color = SimpleSprite.DEFAULT_COLOR.getValue();
+
+    @Getter
+    @Setter
+    private float gravityX;
+
+    @Getter
+    @Setter
+    private float gravityY;
+
+    /**
+     * Velocity multiplier applied every frame, 1 means no drag
+     */
+    @Getter
+    @Setter
+    private float drag = 1f;
+
+    @Getter
+    @Setter
+    private boolean parallel;
+
+    public ParticleEmitter(TextureClip textureClip, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.textureClip = textureClip;
+        this.capacity = capacity;
+        x = new float[capacity];
+        y = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        rotation = new float[capacity];
+        spin = new float[capacity];
+        scale = new float[capacity];
+        scaleVelocity = new float[capacity];
+        alpha = new float[capacity];
+        alphaVelocity = new float[capacity];
+        life = new float[capacity];
+        freeSlots = new int[capacity];
+    }
+
+    public void setTextureClip(TextureClip textureClip) {
+        this.textureClip = textureClip;
+        invalidateBounds();
+    }
+
+    /**
+     * Emits a particle that fades out linearly over its lifetime.
+     *
+     * @return the slot of the new particle, or -1 if all slots are taken
+     */
+    public int emit(float x, float y, float velocityX, float velocityY, float lifetime) {
+        return emit(x, y, velocityX, velocityY, 0f, 0f, 1f, 0f, 1f, lifetime);
+    }
+
+    /**
+     * @param spin          degrees per frame
+     * @param scaleVelocity scale change per frame
+     * @param alpha         initial alpha, reaches 0 at the end of the lifetime
+     * @param lifetime      in frames
+     * @return the slot of the new particle, or -1 if all slots are taken
+     */
+    public int emit(float x, float y, float velocityX, float velocityY,
+                    float rotation, float spin, float scale, float scaleVelocity,
+                    float alpha, float lifetime) {
+        if (lifetime <= 0f) return -1;
+
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else if (slotCount < capacity) {
+            slot = slotCount++;
+        } else {
+            return -1;
+        }
+
+        this.x[slot] = x;
+        this.y[slot] = y;
+        this.velocityX[slot] = velocityX;
+        this.velocityY[slot] = velocityY;
+        this.rotation[slot] = rotation;
+        this.spin[slot] = spin;
+        this.scale[slot] = scale;
+        this.scaleVelocity[slot] = scaleVelocity;
+        this.alpha[slot] = alpha;
+        this.alphaVelocity[slot] = -alpha / lifetime;
+        this.life[slot] = lifetime;
+        aliveCount++;
+        invalidateAncestorCache();
+        return slot;
+    }
+
+    public void kill(int slot) {
+        if (life[slot] > 0f) {
+            life[slot] = 0f;
+            release(slot);
+            invalidateAncestorCache();
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(life, 0, slotCount, 0f);
+        slotCount = 0;
+        freeCount = 0;
+        aliveCount = 0;
+        invalidateAncestorCache();
+    }
+
+    @Override
+    public void onLoopUpdate() {
+        update(1f);
+    }
+
+    /**
+     * Advances all live particles.
+     *
+     * @param frames number of frames to advance, fractional values are allowed
+     */
+    public void update(float frames) {
+        if (aliveCount == 0) return;
+        invalidateAncestorCache();
+
+        if (parallel && slotCount >= PARALLEL_THRESHOLD) {
+            updateParallel(frames);
+            return;
+        }
+
+        float gx = gravityX * frames;
+        float gy = gravityY * frames;
+        float damping = drag == 1f ? 1f : (float) Math.pow(drag, frames);
+
+        for (int i = 0; i < slotCount; i++) {
+            if (life[i] <= 0f) continue;
+            if (step(i, frames, gx, gy, damping)) release(i);
+        }
+    }
+
+    private void updateParallel(float frames) {
+        int chunks = (slotCount + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        if (deadScratch == null) {
+            deadScratch = new int[capacity];
+            deadCounts = new int[(capacity + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK];
+        }
+
+        float gx = gravityX * frames;
+        float gy = gravityY * frames;
+        float damping = drag == 1f ? 1f : (float) Math.pow(drag, frames);
+        int end = slotCount;
+
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = chunk * PARALLEL_CHUNK;
+            int to = Math.min(from + PARALLEL_CHUNK, end);
+            int dead = 0;
+            for (int i = from; i < to; i++) {
+                if (life[i] <= 0f) continue;
+                if (step(i, frames, gx, gy, damping)) deadScratch[from + dead++] = i;
+            }
+            deadCounts[chunk] = dead;
+        });
+
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = chunk * PARALLEL_CHUNK;
+            for (int k = 0; k < deadCounts[chunk]; k++) {
+                release(deadScratch[from + k]);
+            }
+        }
+    }
+
+    /**
+     * @return true if the particle died during this step
+     */
+    private boolean step(int i, float frames, float gx, float gy, float damping) {
+        float vx = (velocityX[i] + gx) * damping;
+        float vy = (velocityY[i] + gy) * damping;
+        velocityX[i] = vx;
+        velocityY[i] = vy;
+        x[i] += vx * frames;
+        y[i] += vy * frames;
+        rotation[i] += spin[i] * frames;
+        scale[i] += scaleVelocity[i] * frames;
+        alpha[i] += alphaVelocity[i] * frames;
+
+        float remaining = life[i] - frames;
+        if (remaining <= 0f || alpha[i] <= 0f || scale[i] <= 0f) {
+            life[i] = 0f;
+            return true;
+        }
+        life[i] = remaining;
+        return false;
+    }
+
+    private void release(int slot) {
+        aliveCount--;
+        if (slot == slotCount - 1) {
+            slotCount--;
+        } else {
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    /**
+     * @return number of slots the renderer has to scan, live and dead
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    public boolean isAlive(int slot) {
+        return life[slot] > 0f;
+    }
+
+    public float getParticleX(int slot) {
+        return x[slot];
+    }
+
+    public float getParticleY(int slot) {
+        return y[slot];
+    }
+
+    public float getParticleRotation(int slot) {
+        return rotation[slot];
+    }
+
+    public float getParticleScale(int slot) {
+        return scale[slot];
+    }
+
+    public float getParticleAlpha(int slot) {
+        return alpha[slot];
+    }
+
+    public float getParticleLife(int slot) {
+        return life[slot];
+    }
+
+    @Override
+    public void setColor(Color color) {
+        setColor(color == null ? SimpleSprite.DEFAULT_COLOR.getValue() : color.getValue());
+    }
+
+    @Override
+    public void setColor(int rgb) {
+        this.color = rgb & 0xFFFFFF;
+    }
+
+    @Override
+    public Color getColor() {
+        return Color.of(color);
+    }
+
+    public int getColorValue() {
+        return color;
+    }
+
+    /**
+     * Particles are not part of the bounds, an emitter is treated as a point
+     */
+    @Override
+    public float getWidth() {
+        return 0f;
+    }
+
+    @Override
+    public float getHeight() {
+        return 0f;
+    }
+}
@@ -33,7 +33,6 @@ public class PlayableContainer extends SimpleContainer implements Playable {
     private boolean backward;
 
     public PlayableContainer() {
-        setName("_" + getClass().getSimpleName() + getDisplayObjectId());
     }
 
     public PlayableContainer(Sprite[] frameSprites) {
@@ -121,7 +120,26 @@ public class PlayableContainer extends SimpleContainer implements Playable {
         drawCurrentFrame();
     }
 
+    int getSlowingCounter() {
+        return slowingCounter;
+    }
+
+    /**
+     * Puts animation state back as it was, without events, see {@link StateHistory}
+     */
+    void restoreFrameState(int frameIndex, int slowingCounter, boolean playing) {
+        this.slowingCounter = slowingCounter;
+        this.playing = playing;
+        refreshUpdateActivity();
+
+        if (frameIndex != currentFrameIndex && frames != null && frameIndex < frames.length) {
+            currentFrameIndex = frameIndex;
+            drawCurrentFrame();
+        }
+    }
+
     private void drawCurrentFrame() {
+        markChanged(ChangeTracker.FRAME);
         if (currentSprite != null && currentSprite.getParent() != null) {
             currentSprite.removeFromParent();
         }
@@ -151,11 +169,13 @@ public class PlayableContainer extends SimpleContainer implements Playable {
     @Override
     public void play() {
         playing = true;
+        refreshUpdateActivity();
     }
 
     @Override
     public void stop() {
         playing = false;
+        refreshUpdateActivity();
     }
 
     @Override
@@ -51,7 +51,6 @@ public class PlayableSprite extends SimpleSprite implements Playable {
     }
 
     public PlayableSprite() {
-        setName("_" + getClass().getSimpleName() + getDisplayObjectId());
     }
 
     @Override
@@ -118,11 +117,13 @@ public class PlayableSprite extends SimpleSprite implements Playable {
     @Override
     public void play() {
         playing = true;
+        refreshUpdateActivity();
     }
 
     @Override
     public void stop() {
         playing = false;
+        refreshUpdateActivity();
     }
 
     public void setFrameTextureClips(TextureClip[] textureClips) {
@@ -132,7 +133,26 @@ public class PlayableSprite extends SimpleSprite implements Playable {
         }
     }
 
+    int getSlowingCounter() {
+        return slowingCounter;
+    }
+
+    /**
+     * Puts animation state back as it was, without events, see {@link StateHistory}
+     */
+    void restoreFrameState(int frameIndex, int slowingCounter, boolean playing) {
+        this.slowingCounter = slowingCounter;
+        this.playing = playing;
+        refreshUpdateActivity();
+
+        if (frameIndex != currentFrameIndex && frameTextureClips != null && frameIndex < frameTextureClips.length) {
+            currentFrameIndex = frameIndex;
+            drawCurrentFrame();
+        }
+    }
+
     private void drawCurrentFrame() {
+        markChanged(ChangeTracker.FRAME);
         super.setTextureClip(frameTextureClips[currentFrameIndex]);
     }
 
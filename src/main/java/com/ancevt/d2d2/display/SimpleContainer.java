@@ -17,6 +17,8 @@
  */
 package com.ancevt.d2d2.display;
 
+import com.ancevt.d2d2.D2D2;
+import com.ancevt.d2d2.display.texture.Texture;
 import com.ancevt.d2d2.event.Event;
 import com.ancevt.d2d2.event.EventPool;
 import com.ancevt.d2d2.exception.ContainerException;
@@ -27,14 +29,42 @@ import java.util.stream.Stream;
 
 public class SimpleContainer extends BaseDisplayObject implements Container {
 
-    static final float MAX_X = Float.MAX_VALUE;
-    static final float MAX_Y = Float.MAX_VALUE;
+    // subclasses declaring their own size through getWidth() / getHeight(), see validateContentBounds()
+    private static final ClassValue<Boolean> DECLARED_SIZE = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("getWidth").getDeclaringClass() != SimpleContainer.class
+                    || type.getMethod("getHeight").getDeclaringClass() != SimpleContainer.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
 
     final List<DisplayObject> children;
 
+    private float boundsMinX;
+    private float boundsMinY;
+    private float boundsMaxX;
+    private float boundsMaxY;
+    private boolean boundsValid;
+    private boolean boundsUnknownExtent;
+
+    private float worldMinX;
+    private float worldMinY;
+    private float worldMaxX;
+    private float worldMaxY;
+    // newest transform stamp of this container and its ancestors the world bounds were computed for
+    private int worldBoundsStamp = -1;
+
+    private boolean cacheAsTexture;
+    // true only inside a valid cached subtree, so invalidation stops at the first invalid container
+    private boolean cacheValid;
+    private SimpleSprite cachedSprite;
+
     public SimpleContainer() {
         children = new CopyOnWriteArrayList<>();
-        setName("_" + getClass().getSimpleName() + getDisplayObjectId());
     }
 
     public SimpleContainer(DisplayObject wrappingDisplayObject) {
@@ -53,11 +83,15 @@ public class SimpleContainer extends BaseDisplayObject implements Container {
             child.removeFromParent();
         }
 
-        if (child instanceof BaseDisplayObject d) d.setParent(this);
+        if (child instanceof BaseDisplayObject d) {
+            d.setParent(this);
+            d.markChanged(ChangeTracker.PARENT);
+        }
         child.dispatchEvent(EventPool.createEvent(Event.ADD, this));
 
         children.remove(child);
         children.add(child);
+        invalidateContentBounds();
 
         Stage.dispatchAddToStage(child);
     }
@@ -68,11 +102,15 @@ public class SimpleContainer extends BaseDisplayObject implements Container {
             child.removeFromParent();
         }
 
-        if (child instanceof BaseDisplayObject d) d.setParent(this);
+        if (child instanceof BaseDisplayObject d) {
+            d.setParent(this);
+            d.markChanged(ChangeTracker.PARENT);
+        }
         child.dispatchEvent(EventPool.createEvent(Event.ADD, this));
 
         children.remove(child);
         children.add(index, child);
+        invalidateContentBounds();
 
         Stage.dispatchAddToStage(child);
     }
@@ -84,11 +122,15 @@ public class SimpleContainer extends BaseDisplayObject implements Container {
         }
 
         child.setXY(x, y);
-        if (child instanceof BaseDisplayObject d) d.setParent(this);
+        if (child instanceof BaseDisplayObject d) {
+            d.setParent(this);
+            d.markChanged(ChangeTracker.PARENT);
+        }
         child.dispatchEvent(EventPool.createEvent(Event.ADD, this));
 
         children.remove(child);
         children.add(child);
+        invalidateContentBounds();
 
         Stage.dispatchAddToStage(child);
     }
@@ -100,11 +142,15 @@ public class SimpleContainer extends BaseDisplayObject implements Container {
         }
 
         child.setXY(x, y);
-        if (child instanceof BaseDisplayObject d) d.setParent(this);
+        if (child instanceof BaseDisplayObject d) {
+            d.setParent(this);
+            d.markChanged(ChangeTracker.PARENT);
+        }
         child.dispatchEvent(EventPool.createEvent(Event.ADD, this));
 
         children.remove(child);
         children.add(index, child);
+        invalidateContentBounds();
 
         Stage.dispatchAddToStage(child);
     }
@@ -139,9 +185,13 @@ public class SimpleContainer extends BaseDisplayObject implements Container {
     @Override
     public void removeChild(DisplayObject child) {
         Stage.dispatchRemoveFromStage(child);
-        if (child instanceof BaseDisplayObject d) d.setParent(null);
+        if (child instanceof BaseDisplayObject d) {
+            d.setParent(null);
+            d.markChanged(ChangeTracker.PARENT);
+        }
         child.dispatchEvent(EventPool.createEvent(Event.REMOVE, this));
         children.remove(child);
+        invalidateContentBounds();
     }
 
     @Override
@@ -178,6 +228,7 @@ public class SimpleContainer extends BaseDisplayObject implements Container {
     @Override
     public void removeAllChildren() {
         children.clear();
+        invalidateContentBounds();
     }
 
     @Override
@@ -185,36 +236,325 @@ public class SimpleContainer extends BaseDisplayObject implements Container {
         return children.contains(child);
     }
 
+    /**
+     * Left edge of the children's axis-aligned bounds in this container's coordinates,
+     * taking child scale and rotation into account. Cached until a descendant moves,
+     * resizes or the set of children changes.
+     */
     @Override
-    public float getWidth() {
-        float min = MAX_X;
-        float max = 0;
+    public float getBoundsMinX() {
+        validateContentBounds();
+        return boundsMinX;
+    }
 
-        for (final DisplayObject child : children) {
-            float x = child.getX();
-            float xw = x + child.getWidth();
+    @Override
+    public float getBoundsMinY() {
+        validateContentBounds();
+        return boundsMinY;
+    }
+
+    @Override
+    public float getBoundsMaxX() {
+        validateContentBounds();
+        return boundsMaxX;
+    }
+
+    @Override
+    public float getBoundsMaxY() {
+        validateContentBounds();
+        return boundsMaxY;
+    }
+
+    /**
+     * @return false if the container is empty or some descendant reports zero size
+     * (e.g. shapes drawn from vertices), so the bounds may not cover everything drawn
+     */
+    public boolean hasFiniteBounds() {
+        validateContentBounds();
+        return boundsMinX <= boundsMaxX && !boundsUnknownExtent;
+    }
+
+    /**
+     * Axis-aligned bounds of the children in stage coordinates. Recomputed from the cached
+     * local bounds only after a descendant changed or this container or one of its ancestors
+     * moved, resized or changed its parent.
+     */
+    public float getWorldBoundsMinX() {
+        validateWorldBounds();
+        return worldMinX;
+    }
+
+    public float getWorldBoundsMinY() {
+        validateWorldBounds();
+        return worldMinY;
+    }
 
-            min = Math.min(x, min);
-            max = Math.max(xw, max);
+    public float getWorldBoundsMaxX() {
+        validateWorldBounds();
+        return worldMaxX;
+    }
+
+    public float getWorldBoundsMaxY() {
+        validateWorldBounds();
+        return worldMaxY;
+    }
+
+    /**
+     * When enabled, renderers draw the subtree from a texture rendered once by
+     * {@link com.ancevt.d2d2.display.texture.TextureManager#containerToTexture(SimpleContainer)}.
+     * The texture is rendered again on the first {@link #cachedSprite()} after a descendant changed.
+     */
+    public void setCacheAsTexture(boolean cacheAsTexture) {
+        if (cacheAsTexture == this.cacheAsTexture) return;
+        this.cacheAsTexture = cacheAsTexture;
+
+        if (!cacheAsTexture) {
+            disposeCachedSprite();
+            invalidateCache();
         }
+    }
 
-        return max - min;
+    public boolean isCacheAsTexture() {
+        return cacheAsTexture;
     }
 
-    @Override
-    public float getHeight() {
-        float min = MAX_Y;
-        float max = 0;
+    /**
+     * @return sprite showing the cached subtree, placed at the top left corner of the content bounds,
+     * or null if caching is disabled, the container is empty, some descendant does not report its
+     * extent or the texture engine cannot render containers; renderers then draw the children directly
+     */
+    public SimpleSprite cachedSprite() {
+        if (!cacheAsTexture) return null;
+
+        if (!cacheValid) {
+            disposeCachedSprite();
+            validateContentBounds();
+            if (!boundsUnknownExtent && boundsMaxX - boundsMinX >= 1f && boundsMaxY - boundsMinY >= 1f) {
+                Texture texture = D2D2.textureManager().containerToTexture(this);
+                // not asked again until the subtree changes
+                if (texture != null) {
+                    cachedSprite = new SimpleSprite(texture.createTextureClip());
+                    cachedSprite.setXY(boundsMinX, boundsMinY);
+                }
+            }
+            validateCache();
+        }
+        return cachedSprite;
+    }
+
+    private void disposeCachedSprite() {
+        if (cachedSprite != null) {
+            D2D2.textureManager().unloadTexture(cachedSprite.getTextureClip().getTexture());
+            cachedSprite = null;
+        }
+    }
+
+    private void validateCache() {
+        cacheValid = true;
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i) instanceof SimpleContainer container) container.validateCache();
+        }
+    }
+
+    final void invalidateCache() {
+        if (!cacheValid) return;
+        cacheValid = false;
+        if (getParent() instanceof SimpleContainer parent) parent.invalidateCache();
+    }
+
+    /**
+     * Drops the cached content bounds, to be called by subclasses whenever
+     * their overridden {@link #getWidth()} or {@link #getHeight()} changes
+     */
+    protected final void invalidateContentBounds() {
+        invalidateCache();
+
+        // ancestors of a container with invalid bounds are invalid as well
+        if (!boundsValid) return;
+        boundsValid = false;
+        invalidateBounds();
+    }
 
-        for (final DisplayObject child : children) {
+    private void validateContentBounds() {
+        if (boundsValid) return;
+
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        boolean unknownExtent = false;
+
+        for (int i = 0; i < children.size(); i++) {
+            DisplayObject child = children.get(i);
+
+            float left = 0f;
+            float top = 0f;
+            float right;
+            float bottom;
+
+            if (child instanceof SimpleContainer container) {
+                container.validateContentBounds();
+                unknownExtent |= container.boundsUnknownExtent;
+                if (container.boundsMinX > container.boundsMaxX) continue;
+                left = container.boundsMinX;
+                top = container.boundsMinY;
+                right = container.boundsMaxX;
+                bottom = container.boundsMaxY;
+            } else {
+                left = child.getBoundsMinX();
+                top = child.getBoundsMinY();
+                right = child.getBoundsMaxX();
+                bottom = child.getBoundsMaxY();
+                // counted as a point at its origin
+                if (left == right && top == bottom) unknownExtent = true;
+            }
+
+            float sx = child.getScaleX();
+            float sy = child.getScaleY();
+            float x = child.getX();
             float y = child.getY();
-            float yh = y + child.getHeight();
+            float rotation = child.getRotation();
+
+            if (rotation == 0f) {
+                float x0 = x + left * sx;
+                float x1 = x + right * sx;
+                float y0 = y + top * sy;
+                float y1 = y + bottom * sy;
+                minX = Math.min(minX, Math.min(x0, x1));
+                maxX = Math.max(maxX, Math.max(x0, x1));
+                minY = Math.min(minY, Math.min(y0, y1));
+                maxY = Math.max(maxY, Math.max(y0, y1));
+            } else {
+                double radians = Math.toRadians(rotation);
+                float cos = (float) Math.cos(radians);
+                float sin = (float) Math.sin(radians);
+
+                for (int corner = 0; corner < 4; corner++) {
+                    float px = ((corner & 1) == 0 ? left : right) * sx;
+                    float py = ((corner & 2) == 0 ? top : bottom) * sy;
+                    float wx = x + px * cos - py * sin;
+                    float wy = y + px * sin + py * cos;
+                    minX = Math.min(minX, wx);
+                    maxX = Math.max(maxX, wx);
+                    minY = Math.min(minY, wy);
+                    maxY = Math.max(maxY, wy);
+                }
+            }
+        }
 
-            min = Math.min(y, min);
-            max = Math.max(yh, max);
+        boundsMinX = minX;
+        boundsMinY = minY;
+        boundsMaxX = maxX;
+        boundsMaxY = maxY;
+        boundsUnknownExtent = unknownExtent;
+        boundsValid = true;
+        worldBoundsStamp = -1;
+
+        // set after the bounds are valid, an override may call super.getWidth()
+        if (DECLARED_SIZE.get(getClass())) {
+            float width = getWidth();
+            float height = getHeight();
+            if (width > 0f || height > 0f) {
+                boundsMinX = Math.min(boundsMinX, 0f);
+                boundsMinY = Math.min(boundsMinY, 0f);
+                boundsMaxX = Math.max(boundsMaxX, width);
+                boundsMaxY = Math.max(boundsMaxY, height);
+            }
         }
+    }
 
-        return max - min;
+    private void validateWorldBounds() {
+        validateContentBounds();
+
+        int stamp = 0;
+        for (DisplayObject node = this; node != null && !(node instanceof Stage); node = node.getParent()) {
+            if (node instanceof BaseDisplayObject b) stamp = Math.max(stamp, b.getTransformStamp());
+        }
+        if (worldBoundsStamp == stamp) return;
+        worldBoundsStamp = stamp;
+
+        if (boundsMinX > boundsMaxX) {
+            worldMinX = worldMinY = Float.POSITIVE_INFINITY;
+            worldMaxX = worldMaxY = Float.NEGATIVE_INFINITY;
+            return;
+        }
+
+        // world transform of this container: x' = a * x + c * y + tx, y' = b * x + d * y + ty
+        float a = 1f;
+        float b = 0f;
+        float c = 0f;
+        float d = 1f;
+        float tx = 0f;
+        float ty = 0f;
+
+        DisplayObject node = this;
+        while (node != null && !(node instanceof Stage)) {
+            float sx = node.getScaleX();
+            float sy = node.getScaleY();
+            float la = sx;
+            float lb = 0f;
+            float lc = 0f;
+            float ld = sy;
+
+            float rotation = node.getRotation();
+            if (rotation != 0f) {
+                double radians = Math.toRadians(rotation);
+                float cos = (float) Math.cos(radians);
+                float sin = (float) Math.sin(radians);
+                la = cos * sx;
+                lb = sin * sx;
+                lc = -sin * sy;
+                ld = cos * sy;
+            }
+
+            float na = la * a + lc * b;
+            float nb = lb * a + ld * b;
+            float nc = la * c + lc * d;
+            float nd = lb * c + ld * d;
+            float ntx = la * tx + lc * ty + node.getX();
+            float nty = lb * tx + ld * ty + node.getY();
+            a = na;
+            b = nb;
+            c = nc;
+            d = nd;
+            tx = ntx;
+            ty = nty;
+
+            node = node.getParent();
+        }
+
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+
+        for (int corner = 0; corner < 4; corner++) {
+            float px = (corner & 1) == 0 ? boundsMinX : boundsMaxX;
+            float py = (corner & 2) == 0 ? boundsMinY : boundsMaxY;
+            float wx = a * px + c * py + tx;
+            float wy = b * px + d * py + ty;
+            minX = Math.min(minX, wx);
+            maxX = Math.max(maxX, wx);
+            minY = Math.min(minY, wy);
+            maxY = Math.max(maxY, wy);
+        }
+
+        worldMinX = minX;
+        worldMinY = minY;
+        worldMaxX = maxX;
+        worldMaxY = maxY;
+    }
+
+    @Override
+    public float getWidth() {
+        validateContentBounds();
+        return boundsMinX > boundsMaxX ? 0f : boundsMaxX - boundsMinX;
+    }
+
+    @Override
+    public float getHeight() {
+        validateContentBounds();
+        return boundsMinY > boundsMaxY ? 0f : boundsMaxY - boundsMinY;
     }
 
     @Override
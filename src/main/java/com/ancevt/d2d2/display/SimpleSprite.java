@@ -26,15 +26,17 @@ public class SimpleSprite extends BaseDisplayObject implements Sprite {
 
     private float repeatX;
     private float repeatY;
-    private Color color;
+    private int color = DEFAULT_COLOR.getValue();
+    /**
+     * Instance last passed to or returned from {@link #getColor()}, created lazily after {@link #setColor(int)}
+     */
+    private Color colorInstance = DEFAULT_COLOR;
     private TextureClip textureClip;
     private double vertexBleedingFix = 0d;
     private double textureBleedingFix = 0d;
 
     public SimpleSprite() {
-        setColor(DEFAULT_COLOR);
         setRepeat(1, 1);
-        setName("_" + getClass().getSimpleName() + getDisplayObjectId());
     }
 
     public SimpleSprite(String assetPathToImage) {
@@ -56,24 +58,40 @@ public class SimpleSprite extends BaseDisplayObject implements Sprite {
 
     public SimpleSprite(TextureClip textureClip) {
         setTextureClip(textureClip);
-
-        setColor(DEFAULT_COLOR);
         setRepeat(1, 1);
     }
 
     @Override
     public void setColor(Color color) {
-        this.color = color;
+        this.color = color == null ? DEFAULT_COLOR.getValue() : color.getValue() & 0xFFFFFF;
+        this.colorInstance = color;
+        invalidateAncestorCache();
     }
 
     @Override
     public void setColor(int rgb) {
-        setColor(new Color(rgb));
+        this.color = rgb & 0xFFFFFF;
+        this.colorInstance = null;
+        invalidateAncestorCache();
     }
 
+    /**
+     * Returns the same instance until the color is set again, so changes made to it stay visible.
+     * Renderers should prefer {@link #getColorValue()}.
+     */
     @Override
     public Color getColor() {
-        return color;
+        if (colorInstance == null) {
+            colorInstance = new Color(color);
+        }
+        return colorInstance;
+    }
+
+    /**
+     * @return the color packed as 0xRRGGBB
+     */
+    public int getColorValue() {
+        return colorInstance == null ? color : colorInstance.getValue() & 0xFFFFFF;
     }
 
     @Override
@@ -85,11 +103,13 @@ public class SimpleSprite extends BaseDisplayObject implements Sprite {
     @Override
     public void setRepeatX(float value) {
         this.repeatX = value;
+        invalidateBounds();
     }
 
     @Override
     public void setRepeatY(float value) {
         this.repeatY = value;
+        invalidateBounds();
     }
 
     @Override
@@ -110,6 +130,7 @@ public class SimpleSprite extends BaseDisplayObject implements Sprite {
     @Override
     public void setTextureClip(TextureClip value) {
         this.textureClip = value;
+        invalidateBounds();
         if (textureClip != null && textureClip.getTexture().isDisposed()) {
             throw new IllegalStateException("Texture " + textureClip.getTexture().getId() + " is disposed");
         }
@@ -130,11 +151,6 @@ public class SimpleSprite extends BaseDisplayObject implements Sprite {
         return textureClip == null ? 0f : textureClip.getHeight();
     }
 
-    @Override
-    public void onExitFrame() {
-        // For overriding
-    }
-
     @Override
     public SimpleSprite cloneSprite() {
         SimpleSprite result = new SimpleSprite(getTextureClip());
@@ -142,7 +158,7 @@ public class SimpleSprite extends BaseDisplayObject implements Sprite {
         result.setRepeat(getRepeatX(), getRepeatY());
         result.setScale(getScaleX(), getScaleY());
         result.setAlpha(getAlpha());
-        result.setColor(getColor().cloneColor());
+        result.setColor(getColorValue());
         result.setVisible(isVisible());
         result.setRotation(getRotation());
         return result;
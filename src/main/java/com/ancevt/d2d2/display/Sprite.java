@@ -36,4 +36,17 @@ public interface Sprite extends DisplayObject, Colored, Repeatable {
     double getVertexBleedingFix();
 
     Sprite cloneSprite();
+
+    /**
+     * Repeated sprites draw {@code repeatX} times the clip width
+     */
+    @Override
+    default float getBoundsMaxX() {
+        return getWidth() * getRepeatX();
+    }
+
+    @Override
+    default float getBoundsMaxY() {
+        return getHeight() * getRepeatY();
+    }
 }
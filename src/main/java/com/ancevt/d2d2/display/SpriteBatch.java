@@ -0,0 +1,391 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display;
+
+import com.ancevt.d2d2.display.texture.TextureClip;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Draws many instances of a few texture clips as a single display object.
+ * <p>
+ * Per-instance transform, colour, alpha and clip index live in packed primitive arrays kept
+ * dense in {@code 0 until getInstanceCount()}, so renderers consume a batch in one pass and the
+ * engine sees one node with no per-instance events. Instances are addressed by integer handles
+ * that stay valid until {@link #remove(int)}; removed handles are reused by later adds.
+ * <p>
+ * Like a {@link SimpleSprite}, an instance is drawn with its clip's top left corner at
+ * {@code (x, y)}, scaled and rotated around that corner.
+ */
+public class SpriteBatch extends BaseDisplayObject {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final List<TextureClip> clips = new ArrayList<>();
+
+    private float[] x;
+    private float[] y;
+    private float[] scaleX;
+    private float[] scaleY;
+    private float[] rotation;
+    private float[] alpha;
+    private int[] color;
+    private int[] clip;
+
+    // dense index <-> handle
+    private int[] indexToHandle;
+    private int[] handleToIndex;
+    private int[] freeHandles;
+    private int freeHandleCount;
+    private int handleCount;
+
+    private int instanceCount;
+
+    private float boundsMinX;
+    private float boundsMinY;
+    private float boundsMaxX;
+    private float boundsMaxY;
+    private boolean sizeValid = true;
+
+    public SpriteBatch(TextureClip... clips) {
+        this(DEFAULT_CAPACITY, clips);
+    }
+
+    public SpriteBatch(int initialCapacity, TextureClip... clips) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("initialCapacity must be positive: " + initialCapacity);
+        }
+        this.clips.addAll(Arrays.asList(clips));
+        x = new float[initialCapacity];
+        y = new float[initialCapacity];
+        scaleX = new float[initialCapacity];
+        scaleY = new float[initialCapacity];
+        rotation = new float[initialCapacity];
+        alpha = new float[initialCapacity];
+        color = new int[initialCapacity];
+        clip = new int[initialCapacity];
+        indexToHandle = new int[initialCapacity];
+        handleToIndex = new int[initialCapacity];
+        freeHandles = new int[initialCapacity];
+    }
+
+    /**
+     * @return index of the clip for {@link #add(int, float, float)} and {@link #setClip(int, int)}
+     */
+    public int addClip(TextureClip textureClip) {
+        clips.add(textureClip);
+        return clips.size() - 1;
+    }
+
+    public TextureClip getClip(int clipIndex) {
+        return clips.get(clipIndex);
+    }
+
+    public int getClipCount() {
+        return clips.size();
+    }
+
+    public int add(float x, float y) {
+        return add(0, x, y);
+    }
+
+    /**
+     * @return handle of the new instance
+     */
+    public int add(int clipIndex, float x, float y) {
+        checkClipIndex(clipIndex);
+        if (instanceCount == this.x.length) grow();
+
+        int handle = freeHandleCount > 0 ? freeHandles[--freeHandleCount] : handleCount++;
+        int index = instanceCount++;
+
+        handleToIndex[handle] = index;
+        indexToHandle[index] = handle;
+
+        this.x[index] = x;
+        this.y[index] = y;
+        scaleX[index] = 1f;
+        scaleY[index] = 1f;
+        rotation[index] = 0f;
+        alpha[index] = 1f;
+        color[index] = SimpleSprite.DEFAULT_COLOR.getValue();
+        clip[index] = clipIndex;
+
+        invalidateSize();
+        return handle;
+    }
+
+    /**
+     * Removes the instance by moving the last one into its place, so the draw order of
+     * the last instance changes.
+     */
+    public void remove(int handle) {
+        int index = indexOf(handle);
+        int last = --instanceCount;
+
+        if (index != last) {
+            x[index] = x[last];
+            y[index] = y[last];
+            scaleX[index] = scaleX[last];
+            scaleY[index] = scaleY[last];
+            rotation[index] = rotation[last];
+            alpha[index] = alpha[last];
+            color[index] = color[last];
+            clip[index] = clip[last];
+
+            int movedHandle = indexToHandle[last];
+            indexToHandle[index] = movedHandle;
+            handleToIndex[movedHandle] = index;
+        }
+
+        handleToIndex[handle] = -1;
+        freeHandles[freeHandleCount++] = handle;
+        invalidateSize();
+    }
+
+    public void clear() {
+        Arrays.fill(handleToIndex, 0, handleCount, -1);
+        instanceCount = 0;
+        handleCount = 0;
+        freeHandleCount = 0;
+        invalidateSize();
+    }
+
+    public boolean contains(int handle) {
+        return handle >= 0 && handle < handleCount && handleToIndex[handle] >= 0;
+    }
+
+    public void setXY(int handle, float x, float y) {
+        int index = indexOf(handle);
+        this.x[index] = x;
+        this.y[index] = y;
+        invalidateSize();
+    }
+
+    public void move(int handle, float dx, float dy) {
+        int index = indexOf(handle);
+        x[index] += dx;
+        y[index] += dy;
+        invalidateSize();
+    }
+
+    public void setScale(int handle, float scaleX, float scaleY) {
+        int index = indexOf(handle);
+        this.scaleX[index] = scaleX;
+        this.scaleY[index] = scaleY;
+        invalidateSize();
+    }
+
+    public void setRotation(int handle, float degrees) {
+        rotation[indexOf(handle)] = degrees;
+        invalidateSize();
+    }
+
+    public void setAlpha(int handle, float alpha) {
+        this.alpha[indexOf(handle)] = alpha;
+        invalidateAncestorCache();
+    }
+
+    public void setColor(int handle, int rgb) {
+        color[indexOf(handle)] = rgb & 0xFFFFFF;
+        invalidateAncestorCache();
+    }
+
+    public void setClip(int handle, int clipIndex) {
+        checkClipIndex(clipIndex);
+        clip[indexOf(handle)] = clipIndex;
+        invalidateSize();
+    }
+
+    public float getX(int handle) {
+        return x[indexOf(handle)];
+    }
+
+    public float getY(int handle) {
+        return y[indexOf(handle)];
+    }
+
+    public int getInstanceCount() {
+        return instanceCount;
+    }
+
+    // Dense accessors for renderers, index in 0 until getInstanceCount()
+
+    public float getInstanceX(int index) {
+        return x[index];
+    }
+
+    public float getInstanceY(int index) {
+        return y[index];
+    }
+
+    public float getInstanceScaleX(int index) {
+        return scaleX[index];
+    }
+
+    public float getInstanceScaleY(int index) {
+        return scaleY[index];
+    }
+
+    public float getInstanceRotation(int index) {
+        return rotation[index];
+    }
+
+    public float getInstanceAlpha(int index) {
+        return alpha[index];
+    }
+
+    public int getInstanceColor(int index) {
+        return color[index];
+    }
+
+    public TextureClip getInstanceClip(int index) {
+        return clips.get(clip[index]);
+    }
+
+    /**
+     * @return width of the box around all instances, see {@link #getBoundsMinX()}
+     */
+    @Override
+    public float getWidth() {
+        validateSize();
+        return boundsMaxX - boundsMinX;
+    }
+
+    @Override
+    public float getHeight() {
+        validateSize();
+        return boundsMaxY - boundsMinY;
+    }
+
+    /**
+     * Left edge of the transformed corners of all instances in batch coordinates, may be negative
+     */
+    @Override
+    public float getBoundsMinX() {
+        validateSize();
+        return boundsMinX;
+    }
+
+    @Override
+    public float getBoundsMinY() {
+        validateSize();
+        return boundsMinY;
+    }
+
+    @Override
+    public float getBoundsMaxX() {
+        validateSize();
+        return boundsMaxX;
+    }
+
+    @Override
+    public float getBoundsMaxY() {
+        validateSize();
+        return boundsMaxY;
+    }
+
+    private void invalidateSize() {
+        if (sizeValid) {
+            sizeValid = false;
+            invalidateBounds();
+        }
+    }
+
+    private void validateSize() {
+        if (sizeValid) return;
+
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < instanceCount; i++) {
+            TextureClip textureClip = clips.get(clip[i]);
+            if (textureClip == null) continue;
+
+            // same instance transform as the renderers: scale, then rotation around the instance origin
+            float a = scaleX[i];
+            float b = 0f;
+            float c = 0f;
+            float d = scaleY[i];
+            if (rotation[i] != 0f) {
+                double radians = Math.toRadians(rotation[i]);
+                float cos = (float) Math.cos(radians);
+                float sin = (float) Math.sin(radians);
+                a = cos * scaleX[i];
+                b = sin * scaleX[i];
+                c = -sin * scaleY[i];
+                d = cos * scaleY[i];
+            }
+
+            float w = textureClip.getWidth();
+            float h = textureClip.getHeight();
+            for (int corner = 0; corner < 4; corner++) {
+                float px = (corner & 1) == 0 ? 0f : w;
+                float py = (corner & 2) == 0 ? 0f : h;
+                float cornerX = x[i] + a * px + c * py;
+                float cornerY = y[i] + b * px + d * py;
+                minX = Math.min(minX, cornerX);
+                maxX = Math.max(maxX, cornerX);
+                minY = Math.min(minY, cornerY);
+                maxY = Math.max(maxY, cornerY);
+            }
+        }
+
+        if (minX > maxX) {
+            minX = maxX = minY = maxY = 0f;
+        }
+
+        boundsMinX = minX;
+        boundsMinY = minY;
+        boundsMaxX = maxX;
+        boundsMaxY = maxY;
+        sizeValid = true;
+    }
+
+    private int indexOf(int handle) {
+        if (!contains(handle)) {
+            throw new IllegalArgumentException("No sprite batch instance with handle " + handle);
+        }
+        return handleToIndex[handle];
+    }
+
+    private void checkClipIndex(int clipIndex) {
+        if (clipIndex < 0 || clipIndex >= clips.size()) {
+            throw new IndexOutOfBoundsException("Clip index " + clipIndex + " out of " + clips.size());
+        }
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        scaleX = Arrays.copyOf(scaleX, capacity);
+        scaleY = Arrays.copyOf(scaleY, capacity);
+        rotation = Arrays.copyOf(rotation, capacity);
+        alpha = Arrays.copyOf(alpha, capacity);
+        color = Arrays.copyOf(color, capacity);
+        clip = Arrays.copyOf(clip, capacity);
+        indexToHandle = Arrays.copyOf(indexToHandle, capacity);
+        handleToIndex = Arrays.copyOf(handleToIndex, capacity);
+        freeHandles = Arrays.copyOf(freeHandles, capacity);
+    }
+}
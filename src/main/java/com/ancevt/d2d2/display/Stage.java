@@ -36,7 +36,6 @@ public class Stage extends SimpleContainer implements Resizable {
     private Color backgroundColor;
 
     public Stage() {
-        setName("_" + getClass().getSimpleName() + getDisplayObjectId());
         setBackgroundColor(DEFAULT_BACKGROUND_COLOR);
     }
 
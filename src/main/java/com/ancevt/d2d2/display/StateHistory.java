@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Ring of per-tick snapshots of a display subtree for rollback and lag compensation.
+ * All storage is preallocated as primitive arrays of {@code capacity * maxNodes} entries;
+ * {@link #save(int)} and {@link #restore(int)} only copy values and re-link existing
+ * display objects, nothing is allocated or cloned.
+ * <p>
+ * Captured per node: parent and child order, position, scale, rotation, alpha, visibility,
+ * z-order and for {@link Playable} the frame index, playing flag and slowing counter.
+ * Children of {@link Playable} containers belong to the animation and are not captured.
+ */
+public class StateHistory {
+
+    private static final int NO_TICK = Integer.MIN_VALUE;
+
+    private static final byte VISIBLE = 1;
+    private static final byte PLAYING = 1 << 1;
+    private static final byte CONTAINER = 1 << 2;
+    private static final byte PLAYABLE = 1 << 3;
+
+    private final Container root;
+
+    @Getter
+    private final int capacity;
+
+    @Getter
+    private final int maxNodes;
+
+    private final int[] ticks;
+    private final int[] counts;
+
+    private final DisplayObject[] nodes;
+    private final int[] parents;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] scaleXs;
+    private final float[] scaleYs;
+    private final float[] rotations;
+    private final float[] alphas;
+    private final int[] zOrders;
+    private final int[] frames;
+    private final int[] slowingCounters;
+    private final byte[] flags;
+
+    private final int[] placed;
+    private int count;
+
+    /**
+     * @param capacity number of ticks kept
+     * @param maxNodes maximum number of display objects under the root
+     */
+    public StateHistory(Container root, int capacity, int maxNodes) {
+        this.root = root;
+        this.capacity = capacity;
+        this.maxNodes = maxNodes;
+
+        ticks = new int[capacity];
+        Arrays.fill(ticks, NO_TICK);
+        counts = new int[capacity];
+
+        int size = capacity * maxNodes;
+        nodes = new DisplayObject[size];
+        parents = new int[size];
+        xs = new float[size];
+        ys = new float[size];
+        scaleXs = new float[size];
+        scaleYs = new float[size];
+        rotations = new float[size];
+        alphas = new float[size];
+        zOrders = new int[size];
+        frames = new int[size];
+        slowingCounters = new int[size];
+        flags = new byte[size];
+
+        placed = new int[maxNodes];
+    }
+
+    /**
+     * Captures the subtree, overwriting the snapshot taken {@link #getCapacity()} ticks ago
+     */
+    public void save(int tick) {
+        int slot = Math.floorMod(tick, capacity);
+        int base = slot * maxNodes;
+
+        ticks[slot] = NO_TICK;
+        count = 0;
+        saveChildren(root, -1, base);
+
+        // references of the previous snapshot in this slot must not keep removed objects alive
+        if (counts[slot] > count) Arrays.fill(nodes, base + count, base + counts[slot], null);
+
+        counts[slot] = count;
+        ticks[slot] = tick;
+    }
+
+    public boolean contains(int tick) {
+        return tick != NO_TICK && ticks[Math.floorMod(tick, capacity)] == tick;
+    }
+
+    /**
+     * @return false if the tick is no longer (or was never) in the history
+     */
+    public boolean restore(int tick) {
+        if (!contains(tick)) return false;
+
+        int slot = Math.floorMod(tick, capacity);
+        int base = slot * maxNodes;
+        int n = counts[slot];
+        int rootPlaced = 0;
+
+        Arrays.fill(placed, 0, n, 0);
+
+        for (int i = 0; i < n; i++) {
+            int r = base + i;
+            DisplayObject node = nodes[r];
+            int parentIndex = parents[r];
+
+            Container parent = parentIndex == -1 ? root : (Container) nodes[base + parentIndex];
+            int index = parentIndex == -1 ? rootPlaced++ : placed[parentIndex]++;
+
+            if (index >= parent.getNumChildren() || parent.getChild(index) != node) {
+                int max = parent.getNumChildren() - (node.getParent() == parent ? 1 : 0);
+                parent.addChild(node, Math.min(index, max));
+            }
+
+            node.setXY(xs[r], ys[r]);
+            node.setScale(scaleXs[r], scaleYs[r]);
+            node.setRotation(rotations[r]);
+            node.setAlpha(alphas[r]);
+            node.setVisible((flags[r] & VISIBLE) != 0);
+            node.setAbsoluteZOrderIndex(zOrders[r]);
+
+            if ((flags[r] & PLAYABLE) != 0) {
+                restorePlayable((Playable) node, frames[r], slowingCounters[r], (flags[r] & PLAYING) != 0);
+            }
+        }
+
+        // objects added after the snapshot end up behind the restored children
+        trim(root, rootPlaced);
+        for (int i = 0; i < n; i++) {
+            if ((flags[base + i] & CONTAINER) != 0) {
+                trim((Container) nodes[base + i], placed[i]);
+            }
+        }
+
+        return true;
+    }
+
+    private void saveChildren(Container container, int parentIndex, int base) {
+        int numChildren = container.getNumChildren();
+
+        for (int i = 0; i < numChildren; i++) {
+            DisplayObject child = container.getChild(i);
+
+            if (count == maxNodes) {
+                throw new IllegalStateException("Subtree has more than %d display objects".formatted(maxNodes));
+            }
+
+            int index = count++;
+            int r = base + index;
+
+            nodes[r] = child;
+            parents[r] = parentIndex;
+            xs[r] = child.getX();
+            ys[r] = child.getY();
+            scaleXs[r] = child.getScaleX();
+            scaleYs[r] = child.getScaleY();
+            rotations[r] = child.getRotation();
+            alphas[r] = child.getAlpha();
+            zOrders[r] = child.getAbsoluteZOrderIndex();
+
+            byte f = child.isVisible() ? VISIBLE : 0;
+
+            if (child instanceof Playable playable) {
+                f |= PLAYABLE;
+                if (playable.isPlaying()) f |= PLAYING;
+                frames[r] = playable.getCurrentFrameIndex();
+                if (child instanceof PlayableSprite s) {
+                    slowingCounters[r] = s.getSlowingCounter();
+                } else if (child instanceof PlayableContainer c) {
+                    slowingCounters[r] = c.getSlowingCounter();
+                }
+            } else if (child instanceof Container c) {
+                f |= CONTAINER;
+                flags[r] = f;
+                saveChildren(c, index, base);
+                continue;
+            }
+
+            flags[r] = f;
+        }
+    }
+
+    private static void restorePlayable(Playable playable, int frame, int slowingCounter, boolean playing) {
+        if (playable instanceof PlayableSprite s) {
+            s.restoreFrameState(frame, slowingCounter, playing);
+        } else if (playable instanceof PlayableContainer c) {
+            c.restoreFrameState(frame, slowingCounter, playing);
+        } else {
+            if (playable.getCurrentFrameIndex() != frame) playable.setFrame(frame);
+            if (playing) playable.play();
+            else playable.stop();
+        }
+    }
+
+    private static void trim(Container container, int numChildren) {
+        while (container.getNumChildren() > numChildren) {
+            container.removeChild(container.getChild(container.getNumChildren() - 1));
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display;
+
+import com.ancevt.d2d2.D2D2;
+import com.ancevt.d2d2.asset.Assets;
+import com.ancevt.d2d2.display.texture.TextureClip;
+import com.ancevt.d2d2.exception.AssetException;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tile layer stored as square chunks of tile ids.
+ * <p>
+ * Tile id 0 is empty, id {@code n} draws the {@code n}-th registered clip. Chunks are
+ * allocated on the first non-empty tile, so sparse levels stay small, and every chunk has a
+ * dirty flag that renderers use to rebuild only the chunks edited since their last pass.
+ * {@link #forEachChunk} hands out only the allocated chunks intersecting a local rectangle.
+ * <p>
+ * Tileset clips are usually registered by key after
+ * {@link com.ancevt.d2d2.display.texture.TextureManager#loadTextureDataInfo(String)}, which is
+ * also how {@link #read(InputStream)} resolves the keys stored in a map file.
+ */
+public class TileMap extends BaseDisplayObject {
+
+    public static final int CHUNK_SIZE = 32;
+    public static final int EMPTY = 0;
+
+    private static final int CHUNK_AREA = CHUNK_SIZE * CHUNK_SIZE;
+    private static final int MAGIC = 0x4432544D; // "D2TM"
+    private static final int FORMAT_VERSION = 1;
+
+    @FunctionalInterface
+    public interface ChunkVisitor {
+        /**
+         * @param tiles row-major tile ids of the chunk, read as {@code tiles[i] & 0xFFFF}
+         */
+        void visit(int chunkX, int chunkY, short[] tiles, boolean dirty);
+    }
+
+    @Getter
+    private final int tileWidth;
+    @Getter
+    private final int tileHeight;
+    @Getter
+    private final int columns;
+    @Getter
+    private final int rows;
+    @Getter
+    private final int chunkColumns;
+    @Getter
+    private final int chunkRows;
+
+    private final short[][] chunks;
+    private final boolean[] dirty;
+    private final List<TextureClip> clips = new ArrayList<>();
+    private final List<String> clipKeys = new ArrayList<>();
+
+    public TileMap(int tileWidth, int tileHeight, int columns, int rows) {
+        if (tileWidth <= 0 || tileHeight <= 0 || columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException(
+                "Invalid tile map size %dx%d of %dx%d tiles".formatted(columns, rows, tileWidth, tileHeight)
+            );
+        }
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.columns = columns;
+        this.rows = rows;
+        chunkColumns = (columns + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunkRows = (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunks = new short[chunkColumns * chunkRows][];
+        dirty = new boolean[chunks.length];
+    }
+
+    /**
+     * @return id of the added tile
+     */
+    public int addTile(TextureClip textureClip) {
+        return addTile(null, textureClip);
+    }
+
+    /**
+     * Adds a tile by texture clip key, see {@link com.ancevt.d2d2.display.texture.TextureManager#getTextureClip(String)}.
+     * Only tiles added by key are saved by {@link #write(OutputStream)}.
+     *
+     * @return id of the added tile
+     */
+    public int addTile(String textureClipKey) {
+        return addTile(textureClipKey, D2D2.textureManager().getTextureClip(textureClipKey));
+    }
+
+    private int addTile(String key, TextureClip textureClip) {
+        if (clips.size() == 0xFFFF) {
+            throw new IllegalStateException("Tile map supports up to 65535 tiles");
+        }
+        clips.add(textureClip);
+        clipKeys.add(key);
+        return clips.size();
+    }
+
+    public int getTileCount() {
+        return clips.size();
+    }
+
+    /**
+     * @return clip of the tile id, or null for {@link #EMPTY}
+     */
+    public TextureClip getTileClip(int id) {
+        return id == EMPTY ? null : clips.get(id - 1);
+    }
+
+    public int getTile(int column, int row) {
+        checkCell(column, row);
+        short[] chunk = chunks[chunkIndex(column, row)];
+        return chunk == null ? EMPTY : chunk[cellIndex(column, row)] & 0xFFFF;
+    }
+
+    public void setTile(int column, int row, int id) {
+        checkCell(column, row);
+        if (id < 0 || id > clips.size()) {
+            throw new IllegalArgumentException("No tile with id " + id);
+        }
+
+        int chunkIndex = chunkIndex(column, row);
+        short[] chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            if (id == EMPTY) return;
+            chunk = chunks[chunkIndex] = new short[CHUNK_AREA];
+        }
+
+        int cellIndex = cellIndex(column, row);
+        if ((chunk[cellIndex] & 0xFFFF) == id) return;
+
+        chunk[cellIndex] = (short) id;
+        dirty[chunkIndex] = true;
+        invalidateAncestorCache();
+    }
+
+    public void fill(int id) {
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                setTile(column, row, id);
+            }
+        }
+    }
+
+    public boolean isChunkDirty(int chunkX, int chunkY) {
+        return dirty[chunkY * chunkColumns + chunkX];
+    }
+
+    public void clearChunkDirty(int chunkX, int chunkY) {
+        dirty[chunkY * chunkColumns + chunkX] = false;
+    }
+
+    public void markAllChunksDirty() {
+        for (int i = 0; i < chunks.length; i++) {
+            dirty[i] = chunks[i] != null;
+        }
+    }
+
+    /**
+     * Visits allocated chunks intersecting the rectangle given in the map's local coordinates,
+     * e.g. the viewport transformed into the map space by the renderer.
+     */
+    public void forEachChunk(float left, float top, float right, float bottom, ChunkVisitor visitor) {
+        float chunkWidth = (float) tileWidth * CHUNK_SIZE;
+        float chunkHeight = (float) tileHeight * CHUNK_SIZE;
+
+        int fromX = Math.max(0, (int) Math.floor(left / chunkWidth));
+        int fromY = Math.max(0, (int) Math.floor(top / chunkHeight));
+        int toX = Math.min(chunkColumns - 1, (int) Math.floor(right / chunkWidth));
+        int toY = Math.min(chunkRows - 1, (int) Math.floor(bottom / chunkHeight));
+
+        for (int chunkY = fromY; chunkY <= toY; chunkY++) {
+            for (int chunkX = fromX; chunkX <= toX; chunkX++) {
+                int index = chunkY * chunkColumns + chunkX;
+                short[] chunk = chunks[index];
+                if (chunk != null) visitor.visit(chunkX, chunkY, chunk, dirty[index]);
+            }
+        }
+    }
+
+    public void forEachChunk(ChunkVisitor visitor) {
+        forEachChunk(0f, 0f, getWidth(), getHeight(), visitor);
+    }
+
+    @Override
+    public float getWidth() {
+        return (float) columns * tileWidth;
+    }
+
+    @Override
+    public float getHeight() {
+        return (float) rows * tileHeight;
+    }
+
+    /**
+     * Writes the map in the binary format read by {@link #read(InputStream)}:
+     * <pre>
+     * int magic "D2TM", byte version
+     * int tileWidth, tileHeight, columns, rows
+     * short tileCount, tileCount x UTF texture clip key
+     * per allocated chunk: int chunkIndex, run-length pairs (short count, short id) covering the chunk
+     * int -1
+     * </pre>
+     * The stream is not closed.
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(tileWidth);
+        out.writeInt(tileHeight);
+        out.writeInt(columns);
+        out.writeInt(rows);
+
+        out.writeShort(clipKeys.size());
+        for (int i = 0; i < clipKeys.size(); i++) {
+            String key = clipKeys.get(i);
+            if (key == null) {
+                throw new IllegalStateException("Tile " + (i + 1) + " was added without a texture clip key");
+            }
+            out.writeUTF(key);
+        }
+
+        for (int index = 0; index < chunks.length; index++) {
+            short[] chunk = chunks[index];
+            if (chunk == null) continue;
+
+            out.writeInt(index);
+            int i = 0;
+            while (i < CHUNK_AREA) {
+                short id = chunk[i];
+                int run = 1;
+                while (i + run < CHUNK_AREA && chunk[i + run] == id && run < 0xFFFF) run++;
+                out.writeShort(run);
+                out.writeShort(id);
+                i += run;
+            }
+        }
+        out.writeInt(-1);
+        out.flush();
+    }
+
+    public static TileMap read(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a tile map");
+        }
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported tile map version " + version);
+        }
+
+        TileMap tileMap = new TileMap(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+
+        int tileCount = in.readUnsignedShort();
+        for (int i = 0; i < tileCount; i++) {
+            tileMap.addTile(in.readUTF());
+        }
+
+        int index;
+        while ((index = in.readInt()) != -1) {
+            if (index < 0 || index >= tileMap.chunks.length) {
+                throw new IOException("Chunk index out of range: " + index);
+            }
+            short[] chunk = new short[CHUNK_AREA];
+            int i = 0;
+            while (i < CHUNK_AREA) {
+                int run = in.readUnsignedShort();
+                short id = in.readShort();
+                if (run == 0 || i + run > CHUNK_AREA || (id & 0xFFFF) > tileCount) {
+                    throw new IOException("Corrupted chunk " + index);
+                }
+                Arrays.fill(chunk, i, i + run, id);
+                i += run;
+            }
+            tileMap.chunks[index] = chunk;
+            tileMap.dirty[index] = true;
+        }
+        return tileMap;
+    }
+
+    public static TileMap load(String assetPath) {
+        try (InputStream inputStream = Assets.getAsset(assetPath)) {
+            return read(inputStream);
+        } catch (IOException e) {
+            throw new AssetException("Unable to load tile map " + assetPath, e);
+        }
+    }
+
+    private int chunkIndex(int column, int row) {
+        return (row / CHUNK_SIZE) * chunkColumns + column / CHUNK_SIZE;
+    }
+
+    private static int cellIndex(int column, int row) {
+        return (row % CHUNK_SIZE) * CHUNK_SIZE + column % CHUNK_SIZE;
+    }
+
+    private void checkCell(int column, int row) {
+        if (column < 0 || row < 0 || column >= columns || row >= rows) {
+            throw new IndexOutOfBoundsException("Tile %d,%d is outside of %dx%d map".formatted(column, row, columns, rows));
+        }
+    }
+}
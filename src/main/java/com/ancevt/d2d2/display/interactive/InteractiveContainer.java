@@ -36,7 +36,6 @@ public class InteractiveContainer extends SimpleContainer implements Interactive
 
     public InteractiveContainer(float width, float height) {
         interactiveArea = new InteractiveArea(0, 0, width, height);
-        setName("_" + getClass().getSimpleName() + getDisplayObjectId());
         enabled = true;
         pushEventsUp = true;
         InteractiveManager.getInstance().registerInteractive(this);
@@ -87,11 +86,13 @@ public class InteractiveContainer extends SimpleContainer implements Interactive
 
     public void setWidth(float width) {
         interactiveArea.setWidth(width);
+        invalidateContentBounds();
         dispatchResizeEvent();
     }
 
     public void setHeight(float height) {
         interactiveArea.setHeight(height);
+        invalidateContentBounds();
         dispatchResizeEvent();
     }
 
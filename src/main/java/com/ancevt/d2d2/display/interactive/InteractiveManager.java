@@ -20,8 +20,11 @@ package com.ancevt.d2d2.display.interactive;
 import com.ancevt.d2d2.D2D2;
 import com.ancevt.d2d2.event.Event;
 import com.ancevt.d2d2.event.InteractiveEvent;
+import com.ancevt.d2d2.input.InputRecorder;
 import com.ancevt.d2d2.input.KeyCode;
 import com.ancevt.d2d2.input.MouseButton;
+import lombok.Getter;
+import lombok.Setter;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -47,6 +50,10 @@ public class InteractiveManager {
     private int keyHoldTime = KEY_HOLD_TIME;
     private int keyHoldTabDirection;
 
+    @Getter
+    @Setter
+    private InputRecorder inputRecorder;
+
     private InteractiveManager() {
         interactiveList = new CopyOnWriteArrayList<>();
         focusedInteractiveIndex = -1;
@@ -161,6 +168,8 @@ public class InteractiveManager {
                                   boolean shift,
                                   boolean control,
                                   boolean alt) {
+        if (inputRecorder != null) inputRecorder.recordTouch(x, y, pointer, mouseButton, down, shift, control, alt);
+
         switch (mouseButton) {
             case MouseButton.LEFT -> leftMouseButton = down;
             case MouseButton.RIGHT -> rightMouseButton = down;
@@ -245,6 +254,8 @@ public class InteractiveManager {
     }
 
     public final void screenMove(int pointer, final int x, final int y, boolean shift, boolean control, boolean alt) {
+        if (inputRecorder != null) inputRecorder.recordMove(pointer, x, y, shift, control, alt);
+
         float _tcX = 0.0f, _tcY = 0.0f;
         int maxIndex = 0;
         Interactive upperInteractive = null;
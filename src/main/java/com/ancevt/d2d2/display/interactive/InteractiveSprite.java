@@ -38,7 +38,6 @@ public class InteractiveSprite extends SimpleSprite implements Interactive {
         enabled = true;
         pushEventUp = true;
         InteractiveManager.getInstance().registerInteractive(this);
-        setDefaultName();
     }
 
     public InteractiveSprite(TextureClip textureClip) {
@@ -47,7 +46,6 @@ public class InteractiveSprite extends SimpleSprite implements Interactive {
         enabled = true;
         pushEventUp = true;
         InteractiveManager.getInstance().registerInteractive(this);
-        setDefaultName();
     }
 
     public InteractiveSprite(String textureKey) {
@@ -68,10 +66,6 @@ public class InteractiveSprite extends SimpleSprite implements Interactive {
         return pushEventUp;
     }
 
-    private void setDefaultName() {
-        setName("_" + getClass().getSimpleName() + getDisplayObjectId());
-    }
-
     @Override
     public void setX(float value) {
         interactiveArea.setUp(value, interactiveArea.getY(), interactiveArea.getWidth(), interactiveArea.getHeight());
@@ -69,17 +69,20 @@ public class BorderedRectangle extends SimpleContainer {
 
     public void setWidth(float width) {
         fillRect.setWidth(width);
+        invalidateContentBounds();
         rebuildBorders();
     }
 
     public void setHeight(float height) {
         fillRect.setHeight(height);
+        invalidateContentBounds();
         rebuildBorders();
     }
 
     public void setSize(float width, float height) {
         fillRect.setWidth(width);
         fillRect.setHeight(height);
+        invalidateContentBounds();
         rebuildBorders();
     }
 
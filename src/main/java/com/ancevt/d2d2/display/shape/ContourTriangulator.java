@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display.shape;
+
+import org.poly2tri.Poly2Tri;
+import org.poly2tri.geometry.polygon.Polygon;
+import org.poly2tri.geometry.polygon.PolygonPoint;
+import org.poly2tri.geometry.polygon.PolygonSet;
+import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps a set of non-intersecting contours onto poly2tri polygons with holes.
+ * Each contour is classified by the fill rule as an outer boundary, a hole, or redundant.
+ */
+final class ContourTriangulator {
+
+    private ContourTriangulator() {
+    }
+
+    static void triangulate(List<List<Vertex>> contours, FillRule fillRule, List<Triangle> out) {
+        for (DelaunayTriangle delaunayTriangle : triangulateMesh(contours, fillRule)) {
+            out.add(toTriangle(delaunayTriangle));
+        }
+    }
+
+    /**
+     * @return interior triangles with their neighbour links and constrained edge flags intact
+     */
+    static List<DelaunayTriangle> triangulateMesh(List<List<Vertex>> contours, FillRule fillRule) {
+        List<DelaunayTriangle> out = new ArrayList<>();
+        List<List<Vertex>> valid = new ArrayList<>(contours.size());
+        for (List<Vertex> contour : contours) {
+            if (contour.size() >= 3) valid.add(contour);
+        }
+
+        int count = valid.size();
+        if (count == 0) return out;
+
+        if (count == 1) {
+            Polygon polygon = createPolygon(valid.get(0));
+            Poly2Tri.triangulate(polygon);
+            out.addAll(polygon.getTriangles());
+            return out;
+        }
+
+        int[] orientation = new int[count];
+        float[] absArea = new float[count];
+        for (int i = 0; i < count; i++) {
+            float area = signedArea(valid.get(i));
+            orientation[i] = area >= 0f ? 1 : -1;
+            absArea[i] = Math.abs(area);
+        }
+
+        // immediate container of every contour: the smallest other contour containing it
+        int[] parent = new int[count];
+        int[] crossings = new int[count];
+        int[] winding = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            parent[i] = -1;
+            Vertex probe = valid.get(i).get(0);
+            crossings[i] = 1;
+            winding[i] = orientation[i];
+
+            for (int j = 0; j < count; j++) {
+                if (i == j || absArea[j] < absArea[i]) continue;
+                if (contains(valid.get(j), probe.x, probe.y)) {
+                    crossings[i]++;
+                    winding[i] += orientation[j];
+                    if (parent[i] == -1 || absArea[j] < absArea[parent[i]]) parent[i] = j;
+                }
+            }
+        }
+
+        Polygon[] polygons = new Polygon[count];
+        boolean[] outer = new boolean[count];
+        boolean[] hole = new boolean[count];
+
+        for (int i = 0; i < count; i++) {
+            boolean inside = fillRule.isFilled(crossings[i], winding[i]);
+            boolean outside = fillRule.isFilled(crossings[i] - 1, winding[i] - orientation[i]);
+            outer[i] = inside && !outside;
+            hole[i] = !inside && outside;
+            if (outer[i] || hole[i]) polygons[i] = createPolygon(valid.get(i));
+        }
+
+        PolygonSet polygonSet = new PolygonSet();
+
+        for (int i = 0; i < count; i++) {
+            if (outer[i]) {
+                polygonSet.add(polygons[i]);
+            } else if (hole[i]) {
+                int p = parent[i];
+                while (p != -1 && !outer[p]) p = parent[p];
+                if (p != -1) polygons[p].addHole(polygons[i]);
+            }
+        }
+
+        if (polygonSet.getPolygons().isEmpty()) return out;
+
+        Poly2Tri.triangulate(polygonSet);
+
+        for (Polygon polygon : polygonSet.getPolygons()) {
+            out.addAll(polygon.getTriangles());
+        }
+        return out;
+    }
+
+    private static Polygon createPolygon(List<Vertex> contour) {
+        List<PolygonPoint> polygonPoints = new ArrayList<>(contour.size());
+        for (Vertex vertex : contour) {
+            polygonPoints.add(new PolygonPoint(vertex.x, vertex.y));
+        }
+        return new Polygon(polygonPoints);
+    }
+
+    static Triangle toTriangle(DelaunayTriangle delaunayTriangle) {
+        return new Triangle(
+            delaunayTriangle.points[0].getXf(),
+            delaunayTriangle.points[0].getYf(),
+            delaunayTriangle.points[1].getXf(),
+            delaunayTriangle.points[1].getYf(),
+            delaunayTriangle.points[2].getXf(),
+            delaunayTriangle.points[2].getYf()
+        );
+    }
+
+    private static float signedArea(List<Vertex> contour) {
+        float area = 0f;
+        int size = contour.size();
+        for (int i = 0, j = size - 1; i < size; j = i++) {
+            Vertex a = contour.get(j);
+            Vertex b = contour.get(i);
+            area += a.x * b.y - b.x * a.y;
+        }
+        return area * 0.5f;
+    }
+
+    private static boolean contains(List<Vertex> contour, float x, float y) {
+        boolean result = false;
+        int size = contour.size();
+        for (int i = 0, j = size - 1; i < size; j = i++) {
+            Vertex a = contour.get(i);
+            Vertex b = contour.get(j);
+            if ((a.y > y) != (b.y > y) && x < (b.x - a.x) * (y - a.y) / (b.y - a.y) + a.x) {
+                result = !result;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,495 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display.shape;
+
+import org.poly2tri.triangulation.TriangulationPoint;
+import org.poly2tri.triangulation.TriangulationUtil;
+import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
+import org.poly2tri.triangulation.delaunay.sweep.DTSweep;
+import org.poly2tri.triangulation.point.TPoint;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Live constrained Delaunay mesh of a {@link FreeShape}, created by {@link FreeShape#compileEditable()}.
+ * Points can be inserted, removed and moved; each edit rebuilds only the triangles around the point
+ * and restores the Delaunay property with local edge flips, keeping the shape triangle list in sync.
+ */
+public class EditableMesh {
+
+    private final List<DelaunayTriangle> meshTriangles;
+    private final List<Triangle> triangles;
+    private final Map<DelaunayTriangle, Integer> slots = new IdentityHashMap<>();
+    private final Map<TriangulationPoint, DelaunayTriangle> pointTriangles = new IdentityHashMap<>();
+    private DelaunayTriangle lastLocated;
+
+    EditableMesh(List<DelaunayTriangle> meshTriangles, List<Triangle> triangles) {
+        this.meshTriangles = new ArrayList<>(meshTriangles.size());
+        this.triangles = triangles;
+        triangles.clear();
+        for (DelaunayTriangle t : meshTriangles) {
+            add(t);
+        }
+    }
+
+    public int getTriangleCount() {
+        return meshTriangles.size();
+    }
+
+    public Set<TriangulationPoint> getPoints() {
+        return Collections.unmodifiableSet(pointTriangles.keySet());
+    }
+
+    /**
+     * @return the mesh point closest to the given coordinates among the corners of the triangle
+     * containing them, or null if the coordinates are outside the shape
+     */
+    public TriangulationPoint pickPoint(float x, float y) {
+        DelaunayTriangle t = locate(x, y);
+        if (t == null) return null;
+
+        TriangulationPoint result = null;
+        double min = Double.MAX_VALUE;
+        for (TriangulationPoint p : t.points) {
+            double dx = p.getX() - x;
+            double dy = p.getY() - y;
+            double d = dx * dx + dy * dy;
+            if (d < min) {
+                min = d;
+                result = p;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Inserts a free point. A point lying exactly on a contour or constrained edge splits it,
+     * both halves stay constrained and the new point becomes part of the contour.
+     */
+    public TriangulationPoint insertPoint(float x, float y) {
+        TriangulationPoint p = new TPoint(x, y);
+        insert(p);
+        return p;
+    }
+
+    /**
+     * Removes a point that is not part of a contour
+     */
+    public void removePoint(TriangulationPoint p) {
+        List<DelaunayTriangle> star = collectStar(p);
+        if (!isFree(p, star)) {
+            throw new IllegalArgumentException("Unable to remove contour point " + p);
+        }
+
+        List<TriangulationPoint> ring = collectRing(p, star);
+        List<DelaunayTriangle> added = clipEars(ring);
+        replace(star, added);
+        pointTriangles.remove(p);
+        legalize(added);
+    }
+
+    /**
+     * Moves a point. Free points are re-inserted when the move crosses other triangles,
+     * contour points may only move within their surrounding triangles.
+     *
+     * @return false if the move requires a full {@link FreeShape#compileEditable()}
+     */
+    public boolean movePoint(TriangulationPoint p, float x, float y) {
+        List<DelaunayTriangle> star = collectStar(p);
+
+        if (isValidMove(p, star, x, y)) {
+            p.set(x, y, p.getZ());
+            for (DelaunayTriangle t : star) {
+                refresh(t);
+            }
+            legalize(star);
+            return true;
+        }
+
+        if (!isFree(p, star)) return false;
+
+        removePoint(p);
+        p.set(x, y, p.getZ());
+        insert(p);
+        return true;
+    }
+
+    private void insert(TriangulationPoint p) {
+        float x = p.getXf();
+        float y = p.getYf();
+
+        DelaunayTriangle t = locate(x, y);
+        if (t == null) {
+            throw new IllegalArgumentException("Point (%s, %s) is outside of the shape".formatted(x, y));
+        }
+
+        for (TriangulationPoint corner : t.points) {
+            if (corner.getX() == p.getX() && corner.getY() == p.getY()) {
+                throw new IllegalArgumentException("Point (%s, %s) is already in the mesh".formatted(x, y));
+            }
+        }
+
+        List<DelaunayTriangle> cavity = new ArrayList<>(2);
+        cavity.add(t);
+
+        // a point lying exactly on an edge splits it together with the triangle on the other side, if any
+        TriangulationPoint splitA = null;
+        TriangulationPoint splitB = null;
+        boolean splitConstrained = false;
+        for (int i = 0; i < 3; i++) {
+            TriangulationPoint a = t.points[(i + 1) % 3];
+            TriangulationPoint b = t.points[(i + 2) % 3];
+            if (orient(a, b, p) != 0) continue;
+
+            splitA = a;
+            splitB = b;
+            splitConstrained = t.cEdge[i];
+            if (isMeshTriangle(t.neighbors[i])) cavity.add(t.neighbors[i]);
+            break;
+        }
+
+        List<DelaunayTriangle> added = new ArrayList<>();
+        for (DelaunayTriangle r : cavity) {
+            for (int i = 0; i < 3; i++) {
+                if (!cavity.contains(r.neighbors[i]) || !isMeshTriangle(r.neighbors[i])) {
+                    TriangulationPoint a = r.points[(i + 1) % 3];
+                    TriangulationPoint b = r.points[(i + 2) % 3];
+                    if (orient(a, b, p) > 0) {
+                        added.add(new DelaunayTriangle(p, a, b));
+                    }
+                }
+            }
+        }
+
+        replace(cavity, added);
+
+        // the halves of a split constraint are constrained as well, so no T-junction is left on the contour
+        if (splitConstrained) {
+            for (DelaunayTriangle r : added) {
+                if (r.contains(p, splitA)) r.cEdge[r.edgeIndex(p, splitA)] = true;
+                if (r.contains(p, splitB)) r.cEdge[r.edgeIndex(p, splitB)] = true;
+            }
+        }
+
+        legalize(added);
+    }
+
+    private DelaunayTriangle locate(float x, float y) {
+        TPoint q = new TPoint(x, y);
+
+        DelaunayTriangle t = lastLocated != null && slots.containsKey(lastLocated)
+            ? lastLocated
+            : (meshTriangles.isEmpty() ? null : meshTriangles.get(0));
+
+        int steps = meshTriangles.size();
+        walk:
+        while (t != null && steps-- > 0) {
+            for (int i = 0; i < 3; i++) {
+                if (orient(t.points[(i + 1) % 3], t.points[(i + 2) % 3], q) < 0) {
+                    DelaunayTriangle next = t.neighbors[i];
+                    if (!isMeshTriangle(next)) break walk;
+                    t = next;
+                    continue walk;
+                }
+            }
+            lastLocated = t;
+            return t;
+        }
+
+        // the walk can get stuck on concave outlines and holes
+        for (DelaunayTriangle candidate : meshTriangles) {
+            if (contains(candidate, q)) {
+                lastLocated = candidate;
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private List<DelaunayTriangle> collectStar(TriangulationPoint p) {
+        DelaunayTriangle start = pointTriangles.get(p);
+        if (start == null) {
+            throw new IllegalArgumentException("No such point in mesh: " + p);
+        }
+
+        List<DelaunayTriangle> star = new ArrayList<>();
+        Deque<DelaunayTriangle> queue = new ArrayDeque<>();
+        queue.add(start);
+        star.add(start);
+
+        while (!queue.isEmpty()) {
+            DelaunayTriangle t = queue.poll();
+            DelaunayTriangle cw = t.neighborCW(p);
+            DelaunayTriangle ccw = t.neighborCCW(p);
+            if (isMeshTriangle(cw) && !star.contains(cw)) {
+                star.add(cw);
+                queue.add(cw);
+            }
+            if (isMeshTriangle(ccw) && !star.contains(ccw)) {
+                star.add(ccw);
+                queue.add(ccw);
+            }
+        }
+        return star;
+    }
+
+    private boolean isFree(TriangulationPoint p, List<DelaunayTriangle> star) {
+        for (DelaunayTriangle t : star) {
+            if (t.getConstrainedEdgeCW(p) || t.getConstrainedEdgeCCW(p)) return false;
+            if (!isMeshTriangle(t.neighborCW(p)) || !isMeshTriangle(t.neighborCCW(p))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isValidMove(TriangulationPoint p, List<DelaunayTriangle> star, float x, float y) {
+        TPoint moved = new TPoint(x, y);
+        for (DelaunayTriangle t : star) {
+            if (orient(t.pointCCW(p), t.pointCW(p), moved) <= 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the polygon around a free point in counter-clockwise order
+     */
+    private static List<TriangulationPoint> collectRing(TriangulationPoint p, List<DelaunayTriangle> star) {
+        Map<TriangulationPoint, TriangulationPoint> nextOf = new IdentityHashMap<>();
+        for (DelaunayTriangle t : star) {
+            nextOf.put(t.pointCCW(p), t.pointCW(p));
+        }
+
+        List<TriangulationPoint> ring = new ArrayList<>(star.size());
+        TriangulationPoint first = star.get(0).pointCCW(p);
+        TriangulationPoint current = first;
+        do {
+            ring.add(current);
+            current = nextOf.get(current);
+        } while (current != first && current != null && ring.size() <= star.size());
+        return ring;
+    }
+
+    /**
+     * Triangulates a star-shaped polygon, preferring ears whose circumcircle is empty
+     */
+    private static List<DelaunayTriangle> clipEars(List<TriangulationPoint> ring) {
+        List<TriangulationPoint> polygon = new ArrayList<>(ring);
+        List<DelaunayTriangle> result = new ArrayList<>();
+
+        while (polygon.size() > 3) {
+            int size = polygon.size();
+            int chosen = -1;
+
+            for (int i = 0; i < size && chosen == -1; i++) {
+                TriangulationPoint a = polygon.get((i + size - 1) % size);
+                TriangulationPoint b = polygon.get(i);
+                TriangulationPoint c = polygon.get((i + 1) % size);
+                if (orient(a, b, c) <= 0) continue;
+
+                boolean empty = true;
+                for (TriangulationPoint d : polygon) {
+                    if (d != a && d != b && d != c && (incircle(a, b, c, d) || contains(a, b, c, d))) {
+                        empty = false;
+                        break;
+                    }
+                }
+                if (empty) chosen = i;
+            }
+
+            if (chosen == -1) {
+                for (int i = 0; i < size && chosen == -1; i++) {
+                    if (orient(polygon.get((i + size - 1) % size), polygon.get(i), polygon.get((i + 1) % size)) > 0) {
+                        chosen = i;
+                    }
+                }
+                if (chosen == -1) chosen = 0;
+            }
+
+            result.add(new DelaunayTriangle(
+                polygon.get((chosen + size - 1) % size),
+                polygon.get(chosen),
+                polygon.get((chosen + 1) % size)
+            ));
+            polygon.remove(chosen);
+        }
+
+        result.add(new DelaunayTriangle(polygon.get(0), polygon.get(1), polygon.get(2)));
+        return result;
+    }
+
+    /**
+     * Replaces a connected group of triangles with another triangulation of the same area
+     * and re-links neighbours and constrained edges along the border
+     */
+    private void replace(List<DelaunayTriangle> removed, List<DelaunayTriangle> added) {
+        List<DelaunayTriangle> outer = new ArrayList<>();
+        List<TriangulationPoint[]> outerEdges = new ArrayList<>();
+        List<Boolean> outerConstrained = new ArrayList<>();
+
+        for (DelaunayTriangle r : removed) {
+            for (int i = 0; i < 3; i++) {
+                DelaunayTriangle n = r.neighbors[i];
+                if (n != null && removed.contains(n)) continue;
+                outer.add(n);
+                outerEdges.add(new TriangulationPoint[]{r.points[(i + 1) % 3], r.points[(i + 2) % 3]});
+                outerConstrained.add(r.cEdge[i]);
+            }
+        }
+
+        for (DelaunayTriangle r : removed) {
+            remove(r);
+        }
+
+        for (int i = 0; i < added.size(); i++) {
+            DelaunayTriangle t = added.get(i);
+            for (int j = i + 1; j < added.size(); j++) {
+                DelaunayTriangle other = added.get(j);
+                if (sharesEdge(t, other)) t.markNeighbor(other);
+            }
+        }
+
+        for (int i = 0; i < outerEdges.size(); i++) {
+            TriangulationPoint a = outerEdges.get(i)[0];
+            TriangulationPoint b = outerEdges.get(i)[1];
+            for (DelaunayTriangle t : added) {
+                if (t.contains(a, b)) {
+                    DelaunayTriangle n = outer.get(i);
+                    if (n != null) t.markNeighbor(n);
+                    t.cEdge[t.edgeIndex(a, b)] = outerConstrained.get(i);
+                    break;
+                }
+            }
+        }
+
+        for (DelaunayTriangle t : added) {
+            add(t);
+        }
+    }
+
+    /**
+     * Lawson flips until every non-constrained edge of the given triangles and their successors is Delaunay
+     */
+    private void legalize(List<DelaunayTriangle> start) {
+        Deque<DelaunayTriangle> queue = new ArrayDeque<>(start);
+        int limit = 16 * (meshTriangles.size() + 16);
+
+        while (!queue.isEmpty() && limit-- > 0) {
+            DelaunayTriangle t = queue.poll();
+            if (!slots.containsKey(t)) continue;
+
+            for (int i = 0; i < 3; i++) {
+                DelaunayTriangle ot = t.neighbors[i];
+                if (t.cEdge[i] || !isMeshTriangle(ot)) continue;
+
+                TriangulationPoint p = t.points[i];
+                TriangulationPoint op = ot.oppositePoint(t, p);
+
+                if (TriangulationUtil.smartIncircle(p, t.pointCCW(p), t.pointCW(p), op)) {
+                    DTSweep.rotateTrianglePair(t, p, ot, op);
+                    refresh(t);
+                    refresh(ot);
+                    queue.add(t);
+                    queue.add(ot);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void add(DelaunayTriangle t) {
+        t.isInterior(true);
+        slots.put(t, meshTriangles.size());
+        meshTriangles.add(t);
+        triangles.add(ContourTriangulator.toTriangle(t));
+        for (TriangulationPoint p : t.points) {
+            pointTriangles.put(p, t);
+        }
+    }
+
+    private void remove(DelaunayTriangle t) {
+        Integer slot = slots.remove(t);
+        if (slot == null) return;
+
+        int last = meshTriangles.size() - 1;
+        if (slot != last) {
+            DelaunayTriangle moved = meshTriangles.get(last);
+            meshTriangles.set(slot, moved);
+            triangles.set(slot, triangles.get(last));
+            slots.put(moved, slot);
+        }
+        meshTriangles.remove(last);
+        triangles.remove(last);
+        t.isInterior(false);
+    }
+
+    private void refresh(DelaunayTriangle t) {
+        Integer slot = slots.get(t);
+        if (slot != null) {
+            triangles.set(slot, ContourTriangulator.toTriangle(t));
+            for (TriangulationPoint p : t.points) {
+                pointTriangles.put(p, t);
+            }
+        }
+    }
+
+    private boolean isMeshTriangle(DelaunayTriangle t) {
+        return t != null && slots.containsKey(t);
+    }
+
+    private static boolean sharesEdge(DelaunayTriangle a, DelaunayTriangle b) {
+        int shared = 0;
+        for (TriangulationPoint p : a.points) {
+            if (b.contains(p)) shared++;
+        }
+        return shared == 2;
+    }
+
+    private static boolean contains(DelaunayTriangle t, TriangulationPoint q) {
+        return contains(t.points[0], t.points[1], t.points[2], q);
+    }
+
+    private static boolean contains(TriangulationPoint a, TriangulationPoint b, TriangulationPoint c, TriangulationPoint q) {
+        return orient(a, b, q) >= 0 && orient(b, c, q) >= 0 && orient(c, a, q) >= 0;
+    }
+
+    private static int orient(TriangulationPoint a, TriangulationPoint b, TriangulationPoint c) {
+        double value = (b.getX() - a.getX()) * (c.getY() - a.getY()) - (b.getY() - a.getY()) * (c.getX() - a.getX());
+        return value > 0 ? 1 : (value < 0 ? -1 : 0);
+    }
+
+    private static boolean incircle(TriangulationPoint a, TriangulationPoint b, TriangulationPoint c, TriangulationPoint d) {
+        double adx = a.getX() - d.getX();
+        double ady = a.getY() - d.getY();
+        double bdx = b.getX() - d.getX();
+        double bdy = b.getY() - d.getY();
+        double cdx = c.getX() - d.getX();
+        double cdy = c.getY() - d.getY();
+
+        double det = (adx * adx + ady * ady) * (bdx * cdy - cdx * bdy)
+            - (bdx * bdx + bdy * bdy) * (adx * cdy - cdx * ady)
+            + (cdx * cdx + cdy * cdy) * (adx * bdy - bdx * ady);
+
+        return det > 0;
+    }
+}
@@ -4,12 +4,9 @@ import com.ancevt.d2d2.display.BaseDisplayObject;
 import com.ancevt.d2d2.display.Color;
 import com.ancevt.d2d2.display.Colored;
 import com.ancevt.d2d2.display.texture.Texture;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
-import org.poly2tri.Poly2Tri;
-import org.poly2tri.geometry.polygon.Polygon;
-import org.poly2tri.geometry.polygon.PolygonPoint;
-import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -17,9 +14,23 @@ import java.util.List;
 @Getter
 public class FreeShape extends BaseDisplayObject implements Shape, Colored {
 
+    /**
+     * Vertices of the first contour
+     */
     private List<Vertex> vertices = new ArrayList<>();
 
+    /**
+     * All contours including the first one. Contours started with {@link #moveTo(float, float)}
+     * become holes or separate islands depending on {@link #getFillRule()}
+     */
+    private List<List<Vertex>> contours = new ArrayList<>(List.of(vertices));
+
+    @Getter(AccessLevel.NONE)
+    private List<Vertex> currentContour = vertices;
+
     @Setter
+    private FillRule fillRule = FillRule.NON_ZERO;
+
     private Color color = Color.WHITE;
 
     @Setter
@@ -29,14 +40,56 @@ public class FreeShape extends BaseDisplayObject implements Shape, Colored {
     @Getter
     private float currentY;
 
-    @Getter
     private List<Triangle> triangles = new ArrayList<>();
 
+    /**
+     * Extent of the contours, measured on {@link #compile()}; zero until then
+     */
+    @Getter(AccessLevel.NONE)
+    private float boundsMinX;
+    @Getter(AccessLevel.NONE)
+    private float boundsMinY;
+    @Getter(AccessLevel.NONE)
+    private float boundsMaxX;
+    @Getter(AccessLevel.NONE)
+    private float boundsMaxY;
+
+    /**
+     * Allowed on-screen deviation, in pixels, when a level of detail is picked for the current absolute scale
+     */
+    @Setter
+    private float levelOfDetailPixelTolerance = 0.5f;
+
+    @Setter
+    private ShapeSimplifier.Method simplificationMethod = ShapeSimplifier.Method.DOUGLAS_PEUCKER;
+
+    @Getter(AccessLevel.NONE)
+    private float[] levelOfDetailTolerances;
+
+    @Getter(AccessLevel.NONE)
+    private List<List<Triangle>> levelOfDetailTriangles;
+
+    /**
+     * Live mesh, present only after {@link #compileEditable()}
+     */
+    private EditableMesh editableMesh;
+
 
     public void vertex(float x, float y) {
         this.currentX = x;
         this.currentY = y;
-        vertices.add(new Vertex(x, y));
+        currentContour.add(new Vertex(x, y));
+    }
+
+    /**
+     * Starts a new contour at the given point
+     */
+    public void moveTo(float x, float y) {
+        if (!currentContour.isEmpty()) {
+            currentContour = new ArrayList<>();
+            contours.add(currentContour);
+        }
+        vertex(x, y);
     }
 
     public void curveTo(float controlX1, float controlY1, float controlX2, float controlY2, float endX, float endY, float step) {
@@ -66,23 +119,30 @@ public class FreeShape extends BaseDisplayObject implements Shape, Colored {
     }
 
     public void closePath() {
-        var begin = vertices.get(0);
+        var begin = currentContour.get(0);
         vertex(begin.getX(), begin.getY());
     }
 
     public FreeShape copy() {
         FreeShape copy = new FreeShape();
+        copy.contours.clear();
 
-        List<Vertex> copyVertices = new ArrayList<>();
-        for (Vertex v : vertices) {
-            Vertex newVertex = new Vertex(v.getX(), v.getY());
-            copyVertices.add(newVertex);
+        for (List<Vertex> contour : contours) {
+            List<Vertex> copyVertices = new ArrayList<>();
+            for (Vertex v : contour) {
+                Vertex newVertex = new Vertex(v.getX(), v.getY());
+                copyVertices.add(newVertex);
+            }
+            copy.contours.add(copyVertices);
         }
-        copy.vertices = copyVertices;
+        copy.vertices = copy.contours.get(0);
+        copy.currentContour = copy.contours.get(copy.contours.size() - 1);
+        copy.fillRule = fillRule;
 
         List<Triangle> copyTriangles = new ArrayList<>();
         for (Triangle t : triangles) {
             Triangle newTriangle = new Triangle(t.getX1(), t.getY1(), t.getX2(), t.getY2(), t.getX3(), t.getY3());
+            copyTriangles.add(newTriangle);
         }
         copy.triangles = copyTriangles;
         return copy;
@@ -90,29 +150,164 @@ public class FreeShape extends BaseDisplayObject implements Shape, Colored {
 
     public void compile() {
         triangles.clear();
+        ContourTriangulator.triangulate(contours, fillRule, triangles);
+        measureBounds();
+
+        levelOfDetailTolerances = null;
+        levelOfDetailTriangles = null;
+        editableMesh = null;
+    }
+
+    /**
+     * Compiles the shape and keeps the Delaunay mesh alive, so that later edits through the returned
+     * {@link EditableMesh} update {@link #getTriangles()} locally instead of re-triangulating everything.
+     * The contour vertices are not affected by mesh edits.
+     */
+    public EditableMesh compileEditable() {
+        levelOfDetailTolerances = null;
+        levelOfDetailTriangles = null;
+        editableMesh = new EditableMesh(ContourTriangulator.triangulateMesh(contours, fillRule), triangles);
+        measureBounds();
+        return editableMesh;
+    }
+
+    @Override
+    public void setColor(Color color) {
+        this.color = color;
+        invalidateAncestorCache();
+    }
+
+    @Override
+    public float getBoundsMinX() {
+        return boundsMinX;
+    }
+
+    @Override
+    public float getBoundsMinY() {
+        return boundsMinY;
+    }
 
-        List<PolygonPoint> polygonPoints = new ArrayList<>();
-        for (Vertex vertex : vertices) {
-            PolygonPoint polygonPoint = new PolygonPoint(vertex.x, vertex.y);
-            polygonPoints.add(polygonPoint);
+    @Override
+    public float getBoundsMaxX() {
+        return boundsMaxX;
+    }
+
+    @Override
+    public float getBoundsMaxY() {
+        return boundsMaxY;
+    }
+
+    private void measureBounds() {
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+
+        for (List<Vertex> contour : contours) {
+            for (Vertex vertex : contour) {
+                minX = Math.min(minX, vertex.getX());
+                minY = Math.min(minY, vertex.getY());
+                maxX = Math.max(maxX, vertex.getX());
+                maxY = Math.max(maxY, vertex.getY());
+            }
         }
-        Polygon polygon = new Polygon(polygonPoints);
 
-        Poly2Tri.triangulate(polygon);
+        if (minX > maxX) {
+            minX = maxX = minY = maxY = 0f;
+        }
+
+        boundsMinX = minX;
+        boundsMinY = minY;
+        boundsMaxX = maxX;
+        boundsMaxY = maxY;
+        invalidateBounds();
+    }
+
+    /**
+     * Precomputes simplified triangle sets. Must be called after {@link #compile()}.
+     * Levels whose simplified outline cannot be triangulated are skipped.
+     *
+     * @param tolerances simplification tolerances in local units, ascending
+     */
+    public void compileLevelsOfDetail(float... tolerances) {
+        levelOfDetailTolerances = new float[tolerances.length];
+        levelOfDetailTriangles = new ArrayList<>(tolerances.length);
+
+        int count = 0;
+        int previousSize = getVertexCount();
+
+        for (float tolerance : tolerances) {
+            List<List<Vertex>> simplified = new ArrayList<>(contours.size());
+            int size = 0;
+            for (List<Vertex> contour : contours) {
+                List<Vertex> simplifiedContour = ShapeSimplifier.simplify(contour, tolerance, simplificationMethod);
+                // contours collapsed by simplification are dropped
+                if (simplifiedContour.size() >= 3) {
+                    simplified.add(simplifiedContour);
+                    size += simplifiedContour.size();
+                }
+            }
+            if (simplified.isEmpty()) break;
+            if (size == previousSize) continue;
+
+            List<Triangle> levelTriangles = new ArrayList<>();
+            try {
+                ContourTriangulator.triangulate(simplified, fillRule, levelTriangles);
+            } catch (RuntimeException e) {
+                // simplification can make a contour self-intersect, which the triangulator rejects
+                continue;
+            }
+
+            levelOfDetailTolerances[count++] = tolerance;
+            levelOfDetailTriangles.add(levelTriangles);
+            previousSize = size;
+        }
+
+        if (count < levelOfDetailTolerances.length) {
+            float[] trimmed = new float[count];
+            System.arraycopy(levelOfDetailTolerances, 0, trimmed, 0, count);
+            levelOfDetailTolerances = trimmed;
+        }
+    }
+
+    public int getVertexCount() {
+        int result = 0;
+        for (List<Vertex> contour : contours) {
+            result += contour.size();
+        }
+        return result;
+    }
+
+    public int getLevelOfDetailCount() {
+        return levelOfDetailTriangles == null ? 0 : levelOfDetailTriangles.size();
+    }
+
+    /**
+     * @return triangles of the given level, 0 is the full detail
+     */
+    public List<Triangle> getTriangles(int levelOfDetail) {
+        return levelOfDetail == 0 ? triangles : levelOfDetailTriangles.get(levelOfDetail - 1);
+    }
+
+    /**
+     * @return the coarsest precomputed triangle set whose error stays within
+     * {@link #getLevelOfDetailPixelTolerance()} at the current absolute scale
+     */
+    public List<Triangle> getTriangles() {
+        return getTriangles(selectLevelOfDetail());
+    }
+
+    public int selectLevelOfDetail() {
+        if (levelOfDetailTolerances == null || levelOfDetailTolerances.length == 0) return 0;
+
+        float scale = Math.max(Math.abs(getAbsoluteScaleX()), Math.abs(getAbsoluteScaleY()));
 
-        List<DelaunayTriangle> result = polygon.getTriangles();
-        for (DelaunayTriangle delaunayTriangle : result) {
-            triangles.add(
-                new Triangle(
-                    delaunayTriangle.points[0].getXf(),
-                    delaunayTriangle.points[0].getYf(),
-                    delaunayTriangle.points[1].getXf(),
-                    delaunayTriangle.points[1].getYf(),
-                    delaunayTriangle.points[2].getXf(),
-                    delaunayTriangle.points[2].getYf()
-                )
-            );
+        int result = 0;
+        for (int i = 0; i < levelOfDetailTolerances.length; i++) {
+            if (levelOfDetailTolerances[i] * scale > levelOfDetailPixelTolerance) break;
+            result = i + 1;
         }
+        return result;
     }
 
 
@@ -45,10 +45,6 @@ public class LineBatch extends BaseDisplayObject implements Shape {
 
     private Line currentLine = null;
 
-    public LineBatch() {
-        setName("_" + getClass().getSimpleName() + getDisplayObjectId());
-    }
-
     public void moveTo(float x, float y) {
         if (!started) {
             startX = x;
@@ -92,6 +88,7 @@ public class LineBatch extends BaseDisplayObject implements Shape {
     @Override
     public void setColor(Color color) {
         this.color = color;
+        invalidateAncestorCache();
     }
 
     @Override
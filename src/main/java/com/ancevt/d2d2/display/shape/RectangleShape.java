@@ -48,18 +48,21 @@ public class RectangleShape extends BaseDisplayObject implements Shape, Resizabl
     public void setSize(float width, float height) {
         this.width = width;
         this.height = height;
+        invalidateBounds();
         dispatchEvent(Event.builder().type(Event.RESIZE).build());
     }
 
     @Override
     public void setWidth(float value) {
         this.width = value;
+        invalidateBounds();
         dispatchEvent(Event.builder().type(Event.RESIZE).build());
     }
 
     @Override
     public void setHeight(float value) {
         this.height = value;
+        invalidateBounds();
         dispatchEvent(Event.builder().type(Event.RESIZE).build());
     }
 
@@ -76,6 +79,7 @@ public class RectangleShape extends BaseDisplayObject implements Shape, Resizabl
     @Override
     public void setColor(Color color) {
         this.color = color;
+        invalidateAncestorCache();
     }
 
     @Override
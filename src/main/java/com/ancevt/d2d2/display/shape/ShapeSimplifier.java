@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display.shape;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ShapeSimplifier {
+
+    public enum Method {
+        DOUGLAS_PEUCKER,
+        VISVALINGAM
+    }
+
+    /**
+     * @param tolerance maximum allowed deviation from the source outline, in local units
+     */
+    public static List<Vertex> simplify(List<Vertex> vertices, float tolerance, Method method) {
+        return switch (method) {
+            case DOUGLAS_PEUCKER -> douglasPeucker(vertices, tolerance);
+            case VISVALINGAM -> visvalingam(vertices, tolerance * tolerance * 0.5f);
+        };
+    }
+
+    public static List<Vertex> douglasPeucker(List<Vertex> vertices, float tolerance) {
+        int size = vertices.size();
+        if (size < 3 || tolerance <= 0f) return new ArrayList<>(vertices);
+
+        boolean[] keep = new boolean[size];
+        keep[0] = true;
+        keep[size - 1] = true;
+
+        int[] stack = new int[size * 2];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = size - 1;
+
+        float toleranceSquared = tolerance * tolerance;
+
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+
+            float maxDistance = 0f;
+            int index = -1;
+
+            for (int i = first + 1; i < last; i++) {
+                float distance = segmentDistanceSquared(vertices.get(i), vertices.get(first), vertices.get(last));
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    index = i;
+                }
+            }
+
+            if (index != -1 && maxDistance > toleranceSquared) {
+                keep[index] = true;
+                stack[top++] = first;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = last;
+            }
+        }
+
+        List<Vertex> result = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (keep[i]) result.add(vertices.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @param minArea triangles formed by a vertex and its neighbours smaller than this are removed
+     */
+    public static List<Vertex> visvalingam(List<Vertex> vertices, float minArea) {
+        int size = vertices.size();
+        if (size < 4 || minArea <= 0f) return new ArrayList<>(vertices);
+
+        int[] prev = new int[size];
+        int[] next = new int[size];
+        float[] areas = new float[size];
+        boolean[] removed = new boolean[size];
+
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Float.compare(Float.intBitsToFloat((int) a[0]), Float.intBitsToFloat((int) b[0])));
+
+        for (int i = 0; i < size; i++) {
+            prev[i] = i - 1;
+            next[i] = i + 1;
+        }
+
+        for (int i = 1; i < size - 1; i++) {
+            areas[i] = triangleArea(vertices.get(i - 1), vertices.get(i), vertices.get(i + 1));
+            queue.add(new long[]{Float.floatToIntBits(areas[i]), i});
+        }
+
+        int remaining = size;
+
+        while (!queue.isEmpty() && remaining > 3) {
+            long[] entry = queue.poll();
+            int i = (int) entry[1];
+            float area = Float.intBitsToFloat((int) entry[0]);
+
+            // stale entry, the area was recomputed after a neighbour was removed
+            if (removed[i] || area != areas[i]) continue;
+            if (area >= minArea) break;
+
+            removed[i] = true;
+            remaining--;
+
+            int p = prev[i];
+            int n = next[i];
+            next[p] = n;
+            prev[n] = p;
+
+            if (p > 0) {
+                areas[p] = Math.max(area, triangleArea(vertices.get(prev[p]), vertices.get(p), vertices.get(n)));
+                queue.add(new long[]{Float.floatToIntBits(areas[p]), p});
+            }
+            if (n < size - 1) {
+                areas[n] = Math.max(area, triangleArea(vertices.get(p), vertices.get(n), vertices.get(next[n])));
+                queue.add(new long[]{Float.floatToIntBits(areas[n]), n});
+            }
+        }
+
+        List<Vertex> result = new ArrayList<>(remaining);
+        for (int i = 0; i < size; i++) {
+            if (!removed[i]) result.add(vertices.get(i));
+        }
+        return result;
+    }
+
+    private static float triangleArea(Vertex a, Vertex b, Vertex c) {
+        return Math.abs((b.x - a.x) * (c.y - a.y) - (c.x - a.x) * (b.y - a.y)) * 0.5f;
+    }
+
+    private static float segmentDistanceSquared(Vertex p, Vertex a, Vertex b) {
+        float dx = b.x - a.x;
+        float dy = b.y - a.y;
+        float lengthSquared = dx * dx + dy * dy;
+
+        float t = lengthSquared == 0f ? 0f : ((p.x - a.x) * dx + (p.y - a.y) * dy) / lengthSquared;
+        t = Math.max(0f, Math.min(1f, t));
+
+        float ex = p.x - (a.x + t * dx);
+        float ey = p.y - (a.y + t * dy);
+        return ex * ex + ey * ey;
+    }
+}
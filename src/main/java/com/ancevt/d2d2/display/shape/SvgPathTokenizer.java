@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display.shape;
+
+/**
+ * Allocation-free tokenizer for SVG path data ("d" attribute).
+ * Handles comma/space separators, implicit separators ("1.5-2", ".5.5") and exponents.
+ */
+final class SvgPathTokenizer {
+
+    private final CharSequence data;
+    private final int length;
+    private int position;
+
+    SvgPathTokenizer(CharSequence data) {
+        this.data = data;
+        this.length = data.length();
+    }
+
+    boolean hasNext() {
+        skipSeparators();
+        return position < length;
+    }
+
+    /**
+     * @return true if the next token is a number (so the previous command repeats implicitly)
+     */
+    boolean hasNumber() {
+        skipSeparators();
+        if (position >= length) return false;
+        char c = data.charAt(position);
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+    }
+
+    char nextCommand() {
+        skipSeparators();
+        char c = data.charAt(position);
+        if (!isCommand(c)) {
+            throw new IllegalArgumentException("Unexpected character '%c' at %d in path data".formatted(c, position));
+        }
+        position++;
+        return c;
+    }
+
+    float nextFloat() {
+        skipSeparators();
+
+        int start = position;
+        boolean negative = false;
+
+        if (position < length) {
+            char sign = data.charAt(position);
+            if (sign == '-' || sign == '+') {
+                negative = sign == '-';
+                position++;
+            }
+        }
+
+        double mantissa = 0;
+        int digits = 0;
+        while (position < length && isDigit(data.charAt(position))) {
+            mantissa = mantissa * 10 + (data.charAt(position++) - '0');
+            digits++;
+        }
+
+        if (position < length && data.charAt(position) == '.') {
+            position++;
+            double factor = 0.1;
+            while (position < length && isDigit(data.charAt(position))) {
+                mantissa += (data.charAt(position++) - '0') * factor;
+                factor *= 0.1;
+                digits++;
+            }
+        }
+
+        if (digits == 0) {
+            throw new IllegalArgumentException("Number expected at %d in path data".formatted(start));
+        }
+
+        if (position < length && (data.charAt(position) == 'e' || data.charAt(position) == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < length && (data.charAt(position) == '-' || data.charAt(position) == '+')) {
+                negativeExponent = data.charAt(position) == '-';
+                position++;
+            }
+            int exponent = 0;
+            while (position < length && isDigit(data.charAt(position))) {
+                exponent = exponent * 10 + (data.charAt(position++) - '0');
+            }
+            mantissa *= Math.pow(10, negativeExponent ? -exponent : exponent);
+        }
+
+        return (float) (negative ? -mantissa : mantissa);
+    }
+
+    /**
+     * Reads an arc flag, a single '0' or '1' that needs no separator ("a10 10 0 011 1")
+     */
+    boolean nextFlag() {
+        skipSeparators();
+        char c = position < length ? data.charAt(position) : 0;
+        if (c != '0' && c != '1') {
+            throw new IllegalArgumentException("Arc flag expected at %d in path data".formatted(position));
+        }
+        position++;
+        return c == '1';
+    }
+
+    private void skipSeparators() {
+        while (position < length) {
+            char c = data.charAt(position);
+            if (c == ',' || Character.isWhitespace(c)) {
+                position++;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isCommand(char c) {
+        return switch (c) {
+            case 'M', 'm', 'L', 'l', 'H', 'h', 'V', 'v', 'C', 'c', 'S', 's', 'Q', 'q', 'T', 't', 'A', 'a', 'Z', 'z' -> true;
+            default -> false;
+        };
+    }
+}
@@ -4,38 +4,38 @@ import com.ancevt.d2d2.asset.Assets;
 import com.ancevt.d2d2.display.Color;
 import com.ancevt.d2d2.display.Container;
 import com.ancevt.d2d2.display.SimpleContainer;
-import lombok.RequiredArgsConstructor;
-import lombok.ToString;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.BufferedReader;
-import java.io.IOException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.StringTokenizer;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+/**
+ * Streaming SVG parser. Paths are read one by one with StAX, so the document is never held in memory,
+ * and each {@link FreeShape} is handed to the consumer as soon as its path is compiled.
+ */
 public class SvgShapeParser {
 
+    private static final Color DEFAULT_FILL = Color.BLACK;
+
     private float step = 8;
 
+    private float[] levelOfDetailTolerances;
+
     public SvgShapeParser(float step) {
         this.step = step;
     }
 
-    private static String convertInputStreamToString(InputStream inputStream) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            return reader.lines().collect(Collectors.joining(System.lineSeparator()));
-        }
+    /**
+     * Every parsed shape gets these levels of detail precomputed, see {@link FreeShape#compileLevelsOfDetail(float...)}
+     */
+    public void setLevelOfDetailTolerances(float... tolerances) {
+        this.levelOfDetailTolerances = tolerances;
     }
 
     public Container parseAsset(String assetPath) {
@@ -43,56 +43,93 @@ public class SvgShapeParser {
     }
 
     public Container parse(InputStream inputStream) {
+        Container result = new SimpleContainer();
+        parse(inputStream, result::addChild);
+        return result;
+    }
+
+    public void parseAsset(String assetPath, Consumer<FreeShape> shapeConsumer) {
+        parse(Assets.getAsset(assetPath), shapeConsumer);
+    }
+
+    public void parse(InputStream inputStream, Consumer<FreeShape> shapeConsumer) {
         try {
-            return parseSvg(inputStream);
+            parseSvg(inputStream, shapeConsumer);
         } catch (Exception e) {
             throw new IllegalArgumentException(e);
         }
     }
 
-    private Container parseSvg(InputStream inputStream) throws Exception {
-        Container result = new SimpleContainer();
+    /**
+     * Parses on a background thread. The consumer is called from that thread, so shapes
+     * should be added to the display list by the consumer only when it is safe to do so.
+     */
+    public CompletableFuture<Void> parseAsync(InputStream inputStream, Consumer<FreeShape> shapeConsumer) {
+        return CompletableFuture.runAsync(() -> parse(inputStream, shapeConsumer));
+    }
 
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document document = builder.parse(inputStream);
+    private void parseSvg(InputStream inputStream, Consumer<FreeShape> shapeConsumer) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
 
-        NodeList pathNodes = document.getElementsByTagName("path");
+        XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+        Map<String, Color> colorCache = new HashMap<>();
 
-        for (int i = 0; i < pathNodes.getLength(); i++) {
-            Element pathElement = (Element) pathNodes.item(i);
-            String dAttribute = pathElement.getAttribute("d");
-            String styleAttribute = pathElement.getAttribute("style");
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "path".equals(reader.getLocalName())) {
+                    String dAttribute = reader.getAttributeValue(null, "d");
+                    if (dAttribute == null) continue;
 
-            Color color = getFillColorFromStyleAttribute(styleAttribute);
+                    String fill = getStyleValue(reader.getAttributeValue(null, "style"), "fill");
+                    if (fill == null) fill = reader.getAttributeValue(null, "fill");
+                    if ("none".equals(fill)) continue;
 
-            drawPathData(dAttribute, color, result);
-        }
+                    Color color = fill == null ? DEFAULT_FILL : colorCache.computeIfAbsent(fill, SvgShapeParser::parseColor);
 
-        return result;
+                    String fillRule = getStyleValue(reader.getAttributeValue(null, "style"), "fill-rule");
+                    if (fillRule == null) fillRule = reader.getAttributeValue(null, "fill-rule");
+
+                    drawPathData(dAttribute, color, "evenodd".equals(fillRule) ? FillRule.EVEN_ODD : FillRule.NON_ZERO, shapeConsumer);
+                }
+            }
+        } finally {
+            reader.close();
+        }
     }
 
-    private static Color getFillColorFromStyleAttribute(String styleAttribute) {
-        Map<String, String> m = parseStyle(styleAttribute);
-        String fill = m.get("fill");
-        fill = fill.substring(1);
-        return Color.of(fill);
+    private static Color parseColor(String fill) {
+        if (!fill.startsWith("#")) return DEFAULT_FILL;
+
+        String hex = fill.substring(1);
+        if (hex.length() == 3) {
+            hex = new String(new char[]{
+                hex.charAt(0), hex.charAt(0),
+                hex.charAt(1), hex.charAt(1),
+                hex.charAt(2), hex.charAt(2)
+            });
+        }
+        return Color.of(hex);
     }
 
-    private static Map<String, String> parseStyle(String style) {
-        Map<String, String> styleMap = new HashMap<>();
-        String[] attributes = style.split(";");
+    private static String getStyleValue(String style, String key) {
+        if (style == null) return null;
 
-        for (String attribute : attributes) {
-            String[] keyValue = attribute.split(":");
-            if (keyValue.length == 2) {
-                String key = keyValue[0].trim();
-                String value = keyValue[1].trim();
-                styleMap.put(key, value);
+        int length = style.length();
+        int i = 0;
+        while (i < length) {
+            int end = style.indexOf(';', i);
+            if (end == -1) end = length;
+
+            int colon = style.indexOf(':', i);
+            if (colon != -1 && colon < end && style.substring(i, colon).trim().equals(key)) {
+                return style.substring(colon + 1, end).trim();
             }
-        }
 
-        return styleMap;
+            i = end + 1;
+        }
+        return null;
     }
 
     /*
@@ -107,133 +144,123 @@ public class SvgShapeParser {
 
      */
 
-
-    private void drawPathData(String d, Color color, Container container) {
-        List<Command> commands = parsePathData(d);
+    /**
+     * All subpaths of one path element go into a single shape as separate contours,
+     * so compound paths with holes are triangulated once according to the fill rule
+     */
+    private void drawPathData(String d, Color color, FillRule fillRule, Consumer<FreeShape> shapeConsumer) {
+        SvgPathTokenizer tokenizer = new SvgPathTokenizer(d);
 
         FreeShape shape = null;
+        float penX = 0f;
+        float penY = 0f;
+        float controlX = 0f;
+        float controlY = 0f;
+        char command = 0;
+        char previousCommand = 0;
+
+        while (tokenizer.hasNext()) {
+            if (!tokenizer.hasNumber()) {
+                command = tokenizer.nextCommand();
+            } else if (command == 0) {
+                throw new IllegalArgumentException("Command expected in path data: " + d);
+            }
+
+            boolean relative = Character.isLowerCase(command);
+            float baseX = relative ? penX : 0f;
+            float baseY = relative ? penY : 0f;
+
+            if (shape == null) {
+                shape = createShape(color, fillRule);
+                if (command != 'M' && command != 'm') shape.vertex(penX, penY);
+            }
 
-        for (Command command : commands) {
-
-            switch (command.command) {
-                case "M", "m" -> {
-                    if (shape != null) {
-                        shape.compile();
-                        container.addChild(shape);
-                    }
-                    shape = new FreeShape();
-                    shape.setColor(color);
-                    linesTo(shape, command.coordsList, command.command.equals("m"));
+            switch (command) {
+                case 'M', 'm' -> {
+                    shape.moveTo(baseX + tokenizer.nextFloat(), baseY + tokenizer.nextFloat());
+                    // subsequent coordinate pairs are implicit line-to commands
+                    command = relative ? 'l' : 'L';
+                }
+                case 'L', 'l' -> shape.vertex(baseX + tokenizer.nextFloat(), baseY + tokenizer.nextFloat());
+                case 'H', 'h' -> shape.vertex(baseX + tokenizer.nextFloat(), penY);
+                case 'V', 'v' -> shape.vertex(penX, baseY + tokenizer.nextFloat());
+                case 'C', 'c' -> {
+                    float x1 = baseX + tokenizer.nextFloat();
+                    float y1 = baseY + tokenizer.nextFloat();
+                    controlX = baseX + tokenizer.nextFloat();
+                    controlY = baseY + tokenizer.nextFloat();
+                    shape.curveTo(x1, y1, controlX, controlY, baseX + tokenizer.nextFloat(), baseY + tokenizer.nextFloat(), step);
+                }
+                case 'S', 's' -> {
+                    boolean smooth = "CcSs".indexOf(previousCommand) != -1;
+                    float x1 = smooth ? 2 * penX - controlX : penX;
+                    float y1 = smooth ? 2 * penY - controlY : penY;
+                    controlX = baseX + tokenizer.nextFloat();
+                    controlY = baseY + tokenizer.nextFloat();
+                    shape.curveTo(x1, y1, controlX, controlY, baseX + tokenizer.nextFloat(), baseY + tokenizer.nextFloat(), step);
+                }
+                case 'Q', 'q' -> {
+                    controlX = baseX + tokenizer.nextFloat();
+                    controlY = baseY + tokenizer.nextFloat();
+                    quadTo(shape, controlX, controlY, baseX + tokenizer.nextFloat(), baseY + tokenizer.nextFloat());
+                }
+                case 'T', 't' -> {
+                    boolean smooth = "QqTt".indexOf(previousCommand) != -1;
+                    controlX = smooth ? 2 * penX - controlX : penX;
+                    controlY = smooth ? 2 * penY - controlY : penY;
+                    quadTo(shape, controlX, controlY, baseX + tokenizer.nextFloat(), baseY + tokenizer.nextFloat());
                 }
-                case "L", "l" -> linesTo(shape, command.coordsList, command.command.equals("l"));
-                case "H", "h" -> horLineTo(shape, command.coordsList, command.command.equals("h"));
-                case "V", "v" -> vertLineTo(shape, command.coordsList, command.command.equals("v"));
-                case "C", "c" -> {
-                    curveTo(shape, command.coordsList, command.command.equals("c"));
+                case 'A', 'a' -> {
+                    // Arcs are not tessellated; skip radii, rotation and flags and go straight to the end point
+                    for (int i = 0; i < 3; i++) tokenizer.nextFloat();
+                    tokenizer.nextFlag();
+                    tokenizer.nextFlag();
+                    shape.vertex(baseX + tokenizer.nextFloat(), baseY + tokenizer.nextFloat());
                 }
-                case "Z", "z" -> linesToBegin(shape);
+                case 'Z', 'z' -> shape.closePath();
             }
 
+            if (command == 'Z' || command == 'z') {
+                // close path takes no arguments, so it never repeats implicitly
+                command = 0;
+            }
 
+            previousCommand = command;
+            penX = shape.getCurrentX();
+            penY = shape.getCurrentY();
         }
 
-        shape.compile();
-        container.addChild(shape);
+        emit(shape, shapeConsumer);
     }
 
-    private void curveTo(FreeShape shape, List<Coords> coordsList, boolean relative) {
+    private void quadTo(FreeShape shape, float controlX, float controlY, float endX, float endY) {
+        float startX = shape.getCurrentX();
+        float startY = shape.getCurrentY();
         shape.curveTo(
-            coordsList.get(0).x + (relative ? shape.getCurrentX() : 0f),
-            coordsList.get(0).y + (relative ? shape.getCurrentY() : 0f),
-
-            coordsList.get(1).x + (relative ? shape.getCurrentX() : 0f),
-            coordsList.get(1).y + (relative ? shape.getCurrentY() : 0f),
-
-            coordsList.get(2).x + (relative ? shape.getCurrentX() : 0f),
-            coordsList.get(2).y + (relative ? shape.getCurrentY() : 0f),
-
+            startX + 2f / 3f * (controlX - startX),
+            startY + 2f / 3f * (controlY - startY),
+            endX + 2f / 3f * (controlX - endX),
+            endY + 2f / 3f * (controlY - endY),
+            endX,
+            endY,
             step
-
-
         );
     }
 
-    private static void vertLineTo(FreeShape shape, List<Coords> coordsList, boolean relative) {
-        for (Coords c : coordsList) {
-            shape.vertex(shape.getCurrentX(), c.value + (relative ? shape.getCurrentY() : 0f));
-        }
-    }
-
-    private static void horLineTo(FreeShape shape, List<Coords> coordsList, boolean relative) {
-        for (Coords c : coordsList) {
-            shape.vertex(c.value + (relative ? shape.getCurrentX() : 0f), shape.getCurrentY());
-        }
+    private static FreeShape createShape(Color color, FillRule fillRule) {
+        FreeShape shape = new FreeShape();
+        shape.setColor(color);
+        shape.setFillRule(fillRule);
+        return shape;
     }
 
-    private void linesToBegin(FreeShape shape) {
-        shape.closePath();
-    }
-
-    private static void linesTo(FreeShape shape, List<Coords> coordsList, boolean relative) {
-        for (Coords c : coordsList) {
-            shape.vertex(c.x + (relative ? shape.getCurrentX() : 0f), c.y + (relative ? shape.getCurrentY() : 0f));
-        }
-
-    }
-
-    private static List<Command> parsePathData(String path) {
-        StringTokenizer st = new StringTokenizer(path, " ");
-
-        List<Command> result = new ArrayList<>();
-
-        Command cur = null;
-
-        while (st.hasMoreTokens()) {
-            String token = st.nextToken();
-            if (Character.isLetter(token.charAt(0))) {
-                if (cur != null) {
-                    result.add(cur);
-                }
-                cur = new Command(token);
-            } else {
-                Coords coords = new Coords(token);
-                cur.coordsList.add(coords);
-            }
-
-
-        }
-        return result;
-    }
-
-
-//    public static void main(String[] args) {
-//        String s = "M 20.694729,23.540043 41.163668,152.06578 169.15077,77.680925 Z";
-//        var a = parsePathData(s);
-//        System.out.println(a);
-//    }
-
-
-    @RequiredArgsConstructor
-    @ToString
-    private static class Command {
-        private final String command;
-        private final List<Coords> coordsList = new ArrayList<>();
-    }
-
-    @ToString
-    private static class Coords {
-        private float x;
-        private float y;
-        private float value;
-
-        public Coords(String string) {
-            if (string.contains(",")) {
-                x = Float.parseFloat(string.split(",")[0]);
-                y = Float.parseFloat(string.split(",")[1]);
-            } else {
-                value = Float.parseFloat(string);
-            }
+    private void emit(FreeShape shape, Consumer<FreeShape> shapeConsumer) {
+        if (shape == null || shape.getVertexCount() < 3) return;
+        shape.compile();
+        if (levelOfDetailTolerances != null) {
+            shape.compileLevelsOfDetail(levelOfDetailTolerances);
         }
+        shapeConsumer.accept(shape);
     }
 
 }
@@ -20,6 +20,7 @@ package com.ancevt.d2d2.display.text;
 import com.ancevt.d2d2.D2D2;
 import com.ancevt.d2d2.display.Color;
 import com.ancevt.d2d2.display.BaseDisplayObject;
+import com.ancevt.d2d2.display.ChangeTracker;
 import com.ancevt.d2d2.display.Colored;
 import com.ancevt.d2d2.display.Resizable;
 import com.ancevt.d2d2.display.SimpleSprite;
@@ -29,6 +30,7 @@ import lombok.Setter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import static java.lang.Integer.parseInt;
 
@@ -84,7 +86,6 @@ public class Text extends BaseDisplayObject implements Colored, Resizable {
         setWidth(width);
         setHeight(height);
         setText(text);
-        setName("_" + getClass().getSimpleName() + getDisplayObjectId());
     }
 
     public Text(final Font font, float boundWidth, float boundHeight) {
@@ -156,6 +157,7 @@ public class Text extends BaseDisplayObject implements Colored, Resizable {
     }
 
     private void updateCachedSprite() {
+        invalidateBounds();
         if (sprite != null && sprite.getTextureClip() != null) {
             D2D2.textureManager().unloadTexture(sprite.getTextureClip().getTexture());
         }
@@ -173,11 +175,13 @@ public class Text extends BaseDisplayObject implements Colored, Resizable {
 
     public void setMaxWidth(float value) {
         this.maxWidth = value;
+        invalidateBounds();
         setWidth(width);
     }
 
     public void setMaxHeight(float value) {
         this.maxHeight = value;
+        invalidateBounds();
         setHeight(height);
     }
 
@@ -225,6 +229,7 @@ public class Text extends BaseDisplayObject implements Colored, Resizable {
     }
 
     public void setText(String text) {
+        if (!Objects.equals(this.text, text)) markChanged(ChangeTracker.TEXT);
         this.text = text;
         if (multicolor) {
             colorTextData = new ColorTextData(getText(), getColor());
@@ -421,11 +426,6 @@ public class Text extends BaseDisplayObject implements Colored, Resizable {
         return getFont().getCharInfo('0').height();
     }
 
-    @Override
-    public void onExitFrame() {
-        // For overriding
-    }
-
     @Override
     public String toString() {
         return "BitmapText{" +
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display.texture;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Pixel arithmetic on packed non-premultiplied {@code 0xAARRGGBB} ints shared by CPU compositing and rasterising
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ArgbPixels {
+
+    /**
+     * @return the colour {@code 0xRRGGBB} with the alpha {@code 0..1} as an ARGB pixel
+     */
+    public static int withAlpha(int rgb, float alpha) {
+        int a = Math.round(Math.max(0f, Math.min(1f, alpha)) * 255f);
+        return a << 24 | (rgb & 0xFFFFFF);
+    }
+
+    /**
+     * @return the pixel tinted by the colour {@code 0xRRGGBB} with its alpha multiplied by {@code alpha}
+     */
+    public static int modulate(int argb, int rgb, float alpha) {
+        int a = Math.round((argb >>> 24) * Math.max(0f, Math.min(1f, alpha)));
+        int r = ((argb >> 16) & 0xFF) * ((rgb >> 16) & 0xFF) / 255;
+        int g = ((argb >> 8) & 0xFF) * ((rgb >> 8) & 0xFF) / 255;
+        int b = (argb & 0xFF) * (rgb & 0xFF) / 255;
+        return a << 24 | r << 16 | g << 8 | b;
+    }
+
+    /**
+     * @return the source pixel drawn over the destination pixel
+     */
+    public static int blend(int destination, int source) {
+        int sourceAlpha = source >>> 24;
+        if (sourceAlpha == 0) return destination;
+        if (sourceAlpha == 255) return source;
+
+        int destinationAlpha = destination >>> 24;
+        int inverse = 255 - sourceAlpha;
+        int destinationWeight = destinationAlpha * inverse / 255;
+        int outAlpha = sourceAlpha + destinationWeight;
+        if (outAlpha == 0) return 0;
+
+        int r = (((source >> 16) & 0xFF) * sourceAlpha + ((destination >> 16) & 0xFF) * destinationWeight) / outAlpha;
+        int g = (((source >> 8) & 0xFF) * sourceAlpha + ((destination >> 8) & 0xFF) * destinationWeight) / outAlpha;
+        int b = ((source & 0xFF) * sourceAlpha + (destination & 0xFF) * destinationWeight) / outAlpha;
+        return outAlpha << 24 | r << 16 | g << 8 | b;
+    }
+}
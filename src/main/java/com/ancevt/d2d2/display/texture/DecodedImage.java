@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display.texture;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Decoded RGBA8 pixels in a pooled direct buffer, top row first. Close it once the pixels have been
+ * uploaded so the buffer goes back to its pool; the buffer must not be used afterwards.
+ */
+public final class DecodedImage implements AutoCloseable {
+
+    @Getter
+    private final int width;
+    @Getter
+    private final int height;
+    @Getter
+    private final boolean premultiplied;
+    private final DirectBufferPool pool;
+    private ByteBuffer buffer;
+
+    DecodedImage(ByteBuffer buffer, int width, int height, boolean premultiplied, DirectBufferPool pool) {
+        this.buffer = buffer;
+        this.width = width;
+        this.height = height;
+        this.premultiplied = premultiplied;
+        this.pool = pool;
+    }
+
+    /**
+     * @return RGBA bytes, {@code width * 4} per row, position 0 and limit at the end of the pixel data
+     */
+    public ByteBuffer getBuffer() {
+        if (buffer == null) {
+            throw new IllegalStateException("Decoded image is closed");
+        }
+        return buffer;
+    }
+
+    /**
+     * Converts the pixels to packed ARGB ints for the headless engines and {@link TextureCompositor}
+     */
+    public int[] toArgb() {
+        int[] argb = new int[width * height];
+        IntBuffer rgba = getBuffer().duplicate().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        rgba.get(argb);
+        for (int i = 0; i < argb.length; i++) {
+            int value = argb[i];
+            argb[i] = (value >>> 8) | (value << 24);
+        }
+        return argb;
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display.texture;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe pool of direct {@link ByteBuffer}s bucketed by power-of-two capacity, so decoded pixel data
+ * can be handed to native code without copying and without paying for a fresh direct allocation per texture
+ */
+public class DirectBufferPool {
+
+    private static final int MIN_BUCKET = 12;
+    private static final int MAX_BUCKET = 30;
+
+    private final ConcurrentLinkedDeque<ByteBuffer>[] buckets;
+    private final long maxRetainedBytes;
+    private final AtomicLong retainedBytes = new AtomicLong();
+
+    /**
+     * @param maxRetainedBytes released buffers beyond this total are left to the garbage collector
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public DirectBufferPool(long maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+        buckets = new ConcurrentLinkedDeque[MAX_BUCKET + 1];
+        for (int i = MIN_BUCKET; i <= MAX_BUCKET; i++) {
+            buckets[i] = new ConcurrentLinkedDeque<>();
+        }
+    }
+
+    /**
+     * @return a cleared native-order direct buffer with position 0 and limit {@code size}
+     */
+    public ByteBuffer acquire(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Negative buffer size: " + size);
+        }
+        int bucket = bucketOf(size);
+        if (bucket > MAX_BUCKET) {
+            return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        }
+
+        ByteBuffer buffer = buckets[bucket].pollFirst();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(1 << bucket).order(ByteOrder.nativeOrder());
+        } else {
+            retainedBytes.addAndGet(-buffer.capacity());
+        }
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return;
+
+        int capacity = buffer.capacity();
+        int bucket = bucketOf(capacity);
+        if (bucket > MAX_BUCKET || capacity != 1 << bucket) return;
+
+        if (retainedBytes.addAndGet(capacity) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-capacity);
+            return;
+        }
+        buckets[bucket].offerFirst(buffer);
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    public void clear() {
+        for (int i = MIN_BUCKET; i <= MAX_BUCKET; i++) {
+            ByteBuffer buffer;
+            while ((buffer = buckets[i].pollFirst()) != null) {
+                retainedBytes.addAndGet(-buffer.capacity());
+            }
+        }
+    }
+
+    private static int bucketOf(int size) {
+        return size <= 1 << MIN_BUCKET ? MIN_BUCKET : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+}
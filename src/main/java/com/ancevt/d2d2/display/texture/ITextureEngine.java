@@ -17,7 +17,9 @@
  */
 package com.ancevt.d2d2.display.texture;
 
+import com.ancevt.d2d2.display.SimpleContainer;
 import com.ancevt.d2d2.display.text.Text;
+import com.ancevt.d2d2.exception.NotImplementedException;
 
 import java.io.InputStream;
 
@@ -34,10 +36,34 @@ public interface ITextureEngine {
 
     Texture createTexture(String assetPath);
 
+    /**
+     * @return true if the engine implements {@link #createTexture(DecodedImage)}
+     */
+    default boolean isDecodedImageSupported() {
+        return false;
+    }
+
+    /**
+     * Uploads pixels decoded by {@link PngTextureDecoder}. The caller keeps ownership of the image and closes it.
+     */
+    default Texture createTexture(DecodedImage image) {
+        throw new NotImplementedException("createTexture(DecodedImage) is not supported by " + getClass().getSimpleName());
+    }
+
     Texture createTexture(int width, int height, TextureClipCombinerCell[] cells);
 
     void unloadTexture(Texture texture);
 
     Texture bitmapTextToTexture(Text text);
 
+    /**
+     * Renders the subtree of the container, in its local coordinates and cropped to its content bounds,
+     * into a new texture
+     *
+     * @return null if the engine cannot render into textures, the children are then drawn directly
+     */
+    default Texture containerToTexture(SimpleContainer container) {
+        return null;
+    }
+
 }
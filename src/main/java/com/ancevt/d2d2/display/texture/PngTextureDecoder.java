@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display.texture;
+
+import com.ancevt.d2d2.asset.Assets;
+import de.matthiasmann.twl.utils.PNGDecoder;
+import lombok.Getter;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Decodes PNG streams straight into pooled direct RGBA buffers, skipping the {@code BufferedImage}
+ * round trip of ImageIO. Other formats (JPEG, GIF, BMP) are recognised by their signature and still go
+ * through ImageIO into the same kind of buffer. Instances are thread-safe.
+ */
+public class PngTextureDecoder {
+
+    private static final long DEFAULT_POOL_BYTES = 64L * 1024 * 1024;
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static PngTextureDecoder defaultDecoder;
+
+    @Getter
+    private final DirectBufferPool pool;
+
+    public PngTextureDecoder() {
+        this(new DirectBufferPool(DEFAULT_POOL_BYTES));
+    }
+
+    public PngTextureDecoder(DirectBufferPool pool) {
+        this.pool = pool;
+    }
+
+    public static synchronized PngTextureDecoder getDefault() {
+        if (defaultDecoder == null) {
+            defaultDecoder = new PngTextureDecoder();
+        }
+        return defaultDecoder;
+    }
+
+    public DecodedImage decode(InputStream pngInputStream) {
+        return decode(pngInputStream, false);
+    }
+
+    /**
+     * @param premultiply multiply colour channels by alpha, as expected by {@code GL_ONE, GL_ONE_MINUS_SRC_ALPHA} blending
+     */
+    public DecodedImage decode(InputStream inputStream, boolean premultiply) {
+        try (InputStream in = new BufferedInputStream(inputStream)) {
+            in.mark(PNG_SIGNATURE.length);
+            byte[] signature = in.readNBytes(PNG_SIGNATURE.length);
+            in.reset();
+
+            return Arrays.equals(signature, PNG_SIGNATURE) ? decodePng(in, premultiply) : decodeImageIO(in, premultiply);
+        } catch (IOException e) {
+            throw new TextureException(e);
+        }
+    }
+
+    private DecodedImage decodePng(InputStream pngInputStream, boolean premultiply) {
+        ByteBuffer buffer = null;
+        try {
+            PNGDecoder decoder = new PNGDecoder(pngInputStream);
+            int width = decoder.getWidth();
+            int height = decoder.getHeight();
+            int stride = width * 4;
+
+            buffer = pool.acquire(stride * height);
+            decoder.decode(buffer, stride, PNGDecoder.Format.RGBA);
+            buffer.flip();
+
+            if (premultiply && decoder.hasAlpha()) {
+                premultiply(buffer);
+            }
+            return new DecodedImage(buffer, width, height, premultiply, pool);
+        } catch (IOException | UnsupportedOperationException e) {
+            pool.release(buffer);
+            throw new TextureException(e);
+        }
+    }
+
+    private DecodedImage decodeImageIO(InputStream inputStream, boolean premultiply) throws IOException {
+        BufferedImage image = ImageIO.read(inputStream);
+        if (image == null) {
+            throw new TextureException("Unsupported image format");
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+
+        ByteBuffer buffer = pool.acquire(argb.length * 4);
+        for (int i = 0; i < argb.length; i++) {
+            int pixel = argb[i];
+            buffer.put(i * 4, (byte) (pixel >> 16));
+            buffer.put(i * 4 + 1, (byte) (pixel >> 8));
+            buffer.put(i * 4 + 2, (byte) pixel);
+            buffer.put(i * 4 + 3, (byte) (pixel >>> 24));
+        }
+
+        if (premultiply && image.getColorModel().hasAlpha()) {
+            premultiply(buffer);
+        }
+        return new DecodedImage(buffer, width, height, premultiply, pool);
+    }
+
+    /**
+     * Decodes all streams in parallel on the common pool. If any of them fails, all decodes are
+     * waited for and every decoded image is released before the first failure is rethrown.
+     *
+     * @return images in the order of {@code sources}
+     */
+    public List<DecodedImage> decodeAll(List<Supplier<InputStream>> sources, boolean premultiply) {
+        List<CompletableFuture<DecodedImage>> futures = sources.stream()
+                .map(source -> CompletableFuture.supplyAsync(() -> decode(source.get(), premultiply)))
+                .toList();
+
+        DecodedImage[] result = new DecodedImage[futures.size()];
+        RuntimeException failure = null;
+        for (int i = 0; i < result.length; i++) {
+            try {
+                result[i] = futures.get(i).join();
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
+        }
+
+        if (failure != null) {
+            for (DecodedImage image : result) {
+                if (image != null) image.close();
+            }
+            throw failure;
+        }
+        return List.of(result);
+    }
+
+    public List<DecodedImage> decodeAssets(List<String> assetPaths, boolean premultiply) {
+        return decodeAll(assetPaths.stream().<Supplier<InputStream>>map(path -> () -> Assets.getAsset(path)).toList(), premultiply);
+    }
+
+    private static void premultiply(ByteBuffer rgba) {
+        int limit = rgba.limit();
+        for (int i = 0; i < limit; i += 4) {
+            int alpha = rgba.get(i + 3) & 0xFF;
+            if (alpha == 0xFF) continue;
+            rgba.put(i, (byte) (((rgba.get(i) & 0xFF) * alpha + 127) / 255));
+            rgba.put(i + 1, (byte) (((rgba.get(i + 1) & 0xFF) * alpha + 127) / 255));
+            rgba.put(i + 2, (byte) (((rgba.get(i + 2) & 0xFF) * alpha + 127) / 255));
+        }
+    }
+}
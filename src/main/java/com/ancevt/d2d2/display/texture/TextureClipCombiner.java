@@ -160,8 +160,10 @@ public class TextureClipCombiner {
     }
 
     public final Texture createTexture() {
-        return D2D2.textureManager().getTextureEngine().
+        Texture texture = D2D2.textureManager().getTextureEngine().
             createTexture(width, height, cells.toArray(new TextureClipCombinerCell[]{}));
+        D2D2.textureManager().addTexture(texture);
+        return texture;
     }
 
 }
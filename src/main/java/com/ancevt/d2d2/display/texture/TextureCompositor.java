@@ -0,0 +1,312 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display.texture;
+
+import com.ancevt.d2d2.display.Color;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * CPU implementation of {@link TextureClipCombiner} compositing for texture engines without a GPU path.
+ * <p>
+ * Cells are drawn in order into a packed ARGB array honouring clip, colour tint, alpha, scale, rotation
+ * around the cell position and repeat. The target is split into bands of rows that are composited in
+ * parallel. Results are cached by a snapshot of the cell list, so baking the same combination again is a
+ * lookup; cached arrays are shared and must not be modified.
+ */
+public final class TextureCompositor {
+
+    private static final int BAND_HEIGHT = 16;
+
+    @FunctionalInterface
+    public interface PixelSource {
+        /**
+         * @return ARGB pixels of the whole texture row by row, or null if they are not available
+         */
+        int[] getPixels(Texture texture);
+    }
+
+    private static final int INTS_PER_CELL = 16;
+
+    /**
+     * Value snapshot of a cell list, cells may be modified after they were composited
+     */
+    private record Key(int[] values, int hash) {
+
+        Key(int[] values) {
+            this(values, Arrays.hashCode(values));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && hash == key.hash && Arrays.equals(values, key.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final PixelSource pixelSource;
+
+    @Getter
+    @Setter
+    private int cacheCapacity = 32;
+
+    /**
+     * Upper bound of the pixel data kept by the cache; larger results are not cached
+     */
+    @Getter
+    @Setter
+    private long cacheCapacityBytes = 32L * 1024 * 1024;
+
+    private final Map<Key, int[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    public TextureCompositor(PixelSource pixelSource) {
+        this.pixelSource = pixelSource;
+    }
+
+    public int[] composite(int width, int height, TextureClipCombinerCell[] cells) {
+        Key key = new Key(snapshot(width, height, cells));
+        synchronized (cache) {
+            int[] cached = cache.get(key);
+            if (cached != null) return cached;
+        }
+
+        int[] target = new int[width * height];
+        // each source texture is fetched once per composite, cells usually share a few atlases
+        Map<Integer, int[]> sources = new HashMap<>();
+        Cell[] prepared = new Cell[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            prepared[i] = prepare(cells[i], sources);
+        }
+
+        int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int y0 = band * BAND_HEIGHT;
+            int y1 = Math.min(y0 + BAND_HEIGHT, height);
+            for (Cell cell : prepared) {
+                if (cell != null && cell.maxY > y0 && cell.minY < y1) draw(cell, target, width, y0, y1);
+            }
+        });
+
+        cache(key, target);
+        return target;
+    }
+
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    private void cache(Key key, int[] pixels) {
+        long bytes = pixels.length * 4L;
+        if (bytes > cacheCapacityBytes) return;
+
+        synchronized (cache) {
+            int[] previous = cache.put(key, pixels);
+            if (previous != null) cachedBytes -= previous.length * 4L;
+            cachedBytes += bytes;
+
+            Iterator<int[]> iterator = cache.values().iterator();
+            while ((cache.size() > cacheCapacity || cachedBytes > cacheCapacityBytes) && iterator.hasNext()) {
+                cachedBytes -= iterator.next().length * 4L;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * A cell resolved to pixels, inverse transform and bounds
+     */
+    private static final class Cell {
+        int[] pixels;
+        int textureWidth;
+        int textureHeight;
+        int clipX;
+        int clipY;
+        int clipWidth;
+        int clipHeight;
+        float quadWidth;
+        float quadHeight;
+        float tx;
+        float ty;
+        float uX;
+        float uY;
+        float vX;
+        float vY;
+        int color;
+        float alpha;
+        int solid;
+        int minX;
+        int minY;
+        int maxX;
+        int maxY;
+    }
+
+    private Cell prepare(TextureClipCombinerCell source, Map<Integer, int[]> sources) {
+        Cell cell = new Cell();
+        cell.color = source.getColor() == null ? 0xFFFFFF : source.getColor().getValue();
+        cell.alpha = source.getAlpha();
+
+        if (source.isPixel()) {
+            cell.solid = ArgbPixels.withAlpha(cell.color, cell.alpha);
+            cell.minX = source.getX();
+            cell.minY = source.getY();
+            cell.maxX = source.getX() + 1;
+            cell.maxY = source.getY() + 1;
+            return cell;
+        }
+
+        TextureClip clip = source.getTextureClip();
+        if (clip == null || clip.getWidth() <= 0 || clip.getHeight() <= 0) return null;
+
+        Texture texture = clip.getTexture();
+        cell.pixels = sources.computeIfAbsent(texture.getId(), id -> pixelSource.getPixels(texture));
+        if (cell.pixels == null) return null;
+
+        cell.textureWidth = texture.getWidth();
+        cell.textureHeight = texture.getHeight();
+        cell.clipX = clip.getX();
+        cell.clipY = clip.getY();
+        cell.clipWidth = clip.getWidth();
+        cell.clipHeight = clip.getHeight();
+        cell.quadWidth = clip.getWidth() * source.getRepeatX();
+        cell.quadHeight = clip.getHeight() * source.getRepeatY();
+        if (cell.quadWidth <= 0f || cell.quadHeight <= 0f) return null;
+
+        double radians = Math.toRadians(source.getRotation());
+        float cos = (float) Math.cos(radians);
+        float sin = (float) Math.sin(radians);
+        float a = cos * source.getScaleX();
+        float b = sin * source.getScaleX();
+        float c = -sin * source.getScaleY();
+        float d = cos * source.getScaleY();
+        float determinant = a * d - b * c;
+        if (determinant == 0f) return null;
+
+        cell.tx = source.getX();
+        cell.ty = source.getY();
+        cell.uX = d / determinant;
+        cell.uY = -c / determinant;
+        cell.vX = -b / determinant;
+        cell.vY = a / determinant;
+
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int corner = 0; corner < 4; corner++) {
+            float px = (corner & 1) == 0 ? 0f : cell.quadWidth;
+            float py = (corner & 2) == 0 ? 0f : cell.quadHeight;
+            float x = a * px + c * py + cell.tx;
+            float y = b * px + d * py + cell.ty;
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        cell.minX = (int) Math.floor(minX);
+        cell.minY = (int) Math.floor(minY);
+        cell.maxX = (int) Math.ceil(maxX);
+        cell.maxY = (int) Math.ceil(maxY);
+        return cell;
+    }
+
+    private static void draw(Cell cell, int[] target, int width, int y0, int y1) {
+        int fromX = Math.max(0, cell.minX);
+        int toX = Math.min(width, cell.maxX);
+        int fromY = Math.max(y0, cell.minY);
+        int toY = Math.min(y1, cell.maxY);
+        if (fromX >= toX || fromY >= toY) return;
+
+        if (cell.pixels == null) {
+            for (int y = fromY; y < toY; y++) {
+                for (int x = fromX; x < toX; x++) {
+                    target[y * width + x] = ArgbPixels.blend(target[y * width + x], cell.solid);
+                }
+            }
+            return;
+        }
+
+        boolean tinted = cell.color != 0xFFFFFF || cell.alpha != 1f;
+
+        for (int y = fromY; y < toY; y++) {
+            float dy = y + 0.5f - cell.ty;
+            float dx = fromX + 0.5f - cell.tx;
+            float u = cell.uX * dx + cell.uY * dy;
+            float v = cell.vX * dx + cell.vY * dy;
+            int row = y * width;
+
+            for (int x = fromX; x < toX; x++, u += cell.uX, v += cell.vX) {
+                if (u < 0f || v < 0f || u >= cell.quadWidth || v >= cell.quadHeight) continue;
+
+                int textureX = cell.clipX + (int) u % cell.clipWidth;
+                int textureY = cell.clipY + (int) v % cell.clipHeight;
+                if (textureX >= cell.textureWidth || textureY >= cell.textureHeight) continue;
+
+                int source = cell.pixels[textureY * cell.textureWidth + textureX];
+                if (tinted) source = ArgbPixels.modulate(source, cell.color, cell.alpha);
+                target[row + x] = ArgbPixels.blend(target[row + x], source);
+            }
+        }
+    }
+
+    private static int[] snapshot(int width, int height, TextureClipCombinerCell[] cells) {
+        int[] values = new int[2 + cells.length * INTS_PER_CELL];
+        values[0] = width;
+        values[1] = height;
+
+        int i = 2;
+        for (TextureClipCombinerCell cell : cells) {
+            Color color = cell.getColor();
+            TextureClip clip = cell.getTextureClip();
+
+            values[i++] = (cell.isPixel() ? 1 : 0) | (color == null ? 0 : 2) | (clip == null ? 0 : 4);
+            values[i++] = cell.getX();
+            values[i++] = cell.getY();
+            values[i++] = color == null ? 0 : color.getValue();
+            values[i++] = Float.floatToIntBits(cell.getAlpha());
+            values[i++] = Float.floatToIntBits(cell.getScaleX());
+            values[i++] = Float.floatToIntBits(cell.getScaleY());
+            values[i++] = Float.floatToIntBits(cell.getRotation());
+            values[i++] = Float.floatToIntBits(cell.getRepeatX());
+            values[i++] = Float.floatToIntBits(cell.getRepeatY());
+            if (clip != null) {
+                values[i] = clip.getTexture().getId();
+                values[i + 1] = clip.getX();
+                values[i + 2] = clip.getY();
+                values[i + 3] = clip.getWidth();
+                values[i + 4] = clip.getHeight();
+            }
+            i += 6;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,312 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.display.texture;
+
+import com.ancevt.d2d2.D2D2;
+import com.ancevt.d2d2.lifecycle.SystemProperties;
+import com.ancevt.d2d2.time.Timer;
+import lombok.Getter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared loader for textures addressed by URL. Downloads run on a bounded pool of workers, concurrent requests
+ * for the same URL share one download, loaded textures are kept in an LRU and response bodies are kept on disk
+ * and revalidated with ETag/Last-Modified. Textures are created and futures completed on the delivery executor,
+ * by default the main loop.
+ * <p>
+ * The cache never unloads textures: they may still be displayed, so releasing them is up to the owner.
+ * Eviction only forgets the URL, a later load of it downloads or reads from disk again.
+ */
+public class TextureHttpCache {
+
+    /**
+     * Runs tasks on the main loop thread on the next timer check
+     */
+    public static final Executor MAIN_LOOP = task -> Timer.setTimeout(timer -> task.run(), 0);
+
+    private static final int DEFAULT_MAX_CONNECTIONS = 6;
+    private static final int DEFAULT_MEMORY_CAPACITY = 256;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static TextureHttpCache defaultCache;
+
+    private final TextureManager textureManager;
+    private final Path diskCacheDir;
+    private final Executor deliveryExecutor;
+    private final ExecutorService workers;
+    private final HttpClient client;
+    private final PngTextureDecoder decoder = PngTextureDecoder.getDefault();
+    private final Map<String, CompletableFuture<Texture>> inFlight = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Texture> memoryCache;
+
+    @Getter
+    private final int memoryCapacity;
+
+    /**
+     * @param maxConnections maximum number of simultaneous downloads
+     * @param memoryCapacity number of URLs remembered; the least recently used ones beyond it are forgotten
+     * @param diskCacheDir   directory for response bodies, or null to disable the disk cache
+     */
+    public TextureHttpCache(TextureManager textureManager,
+                            int maxConnections,
+                            int memoryCapacity,
+                            Path diskCacheDir,
+                            Executor deliveryExecutor) {
+        if (maxConnections <= 0 || memoryCapacity <= 0) {
+            throw new IllegalArgumentException("maxConnections and memoryCapacity must be positive");
+        }
+        this.textureManager = textureManager;
+        this.memoryCapacity = memoryCapacity;
+        this.diskCacheDir = diskCacheDir;
+        this.deliveryExecutor = deliveryExecutor;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(maxConnections, runnable -> {
+            Thread thread = new Thread(runnable, "d2d2-texture-http-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        client = HttpClient.newBuilder()
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        memoryCache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public static synchronized TextureHttpCache getDefault() {
+        if (defaultCache == null) {
+            String dir = System.getProperty(SystemProperties.D2D2_TEXTURE_CACHE_DIR);
+            defaultCache = new TextureHttpCache(
+                D2D2.textureManager(),
+                DEFAULT_MAX_CONNECTIONS,
+                DEFAULT_MEMORY_CAPACITY,
+                dir != null ? Path.of(dir) : Path.of(System.getProperty("java.io.tmpdir"), "d2d2-texture-cache"),
+                MAIN_LOOP
+            );
+        }
+        return defaultCache;
+    }
+
+    /**
+     * @return a future completed on the delivery executor with the texture, shared by all callers
+     * loading the same URL at the same time
+     */
+    public CompletableFuture<Texture> load(String url) {
+        Texture cached = getCached(url);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return inFlight.computeIfAbsent(url, this::startLoad);
+    }
+
+    /**
+     * @return the loaded texture for the URL, or null if it is not in memory
+     */
+    public Texture getCached(String url) {
+        synchronized (memoryCache) {
+            Texture texture = memoryCache.get(url);
+            if (texture != null && !textureManager.containsTexture(texture)) {
+                memoryCache.remove(url);
+                return null;
+            }
+            return texture;
+        }
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Forgets all loaded textures without unloading them
+     */
+    public void clearMemoryCache() {
+        synchronized (memoryCache) {
+            memoryCache.clear();
+        }
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private CompletableFuture<Texture> startLoad(String url) {
+        CompletableFuture<Texture> result = new CompletableFuture<>();
+        workers.execute(() -> {
+            byte[] bytes;
+            DecodedImage image;
+            try {
+                bytes = fetch(url);
+                // engines without decoded image support decode on the delivery thread themselves
+                image = textureManager.isDecodedImageSupported() ? decoder.decode(new ByteArrayInputStream(bytes)) : null;
+            } catch (Exception e) {
+                deliveryExecutor.execute(() -> {
+                    inFlight.remove(url, result);
+                    result.completeExceptionally(e);
+                });
+                return;
+            }
+
+            // the URL stays in flight until the texture is cached, so no second load can start in between
+            deliveryExecutor.execute(() -> {
+                try {
+                    Texture texture = image != null
+                        ? textureManager.loadTexture(image)
+                        : textureManager.loadTexture(new ByteArrayInputStream(bytes));
+                    cache(url, texture);
+                    inFlight.remove(url, result);
+                    result.complete(texture);
+                } catch (RuntimeException e) {
+                    inFlight.remove(url, result);
+                    result.completeExceptionally(e);
+                } finally {
+                    if (image != null) image.close();
+                }
+            });
+        });
+        return result;
+    }
+
+    private void cache(String url, Texture texture) {
+        synchronized (memoryCache) {
+            memoryCache.put(url, texture);
+            var iterator = memoryCache.keySet().iterator();
+            while (memoryCache.size() > memoryCapacity && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    private byte[] fetch(String url) throws IOException, InterruptedException {
+        Path bodyFile = null;
+        Path metaFile = null;
+        Properties meta = null;
+
+        if (diskCacheDir != null) {
+            String key = key(url);
+            bodyFile = diskCacheDir.resolve(key + ".png");
+            metaFile = diskCacheDir.resolve(key + ".properties");
+            meta = readMeta(bodyFile, metaFile);
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).timeout(REQUEST_TIMEOUT).GET();
+        if (meta != null) {
+            String etag = meta.getProperty("etag");
+            String lastModified = meta.getProperty("lastModified");
+            if (etag != null) request.header("If-None-Match", etag);
+            if (lastModified != null) request.header("If-Modified-Since", lastModified);
+        }
+
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            // offline: a stale copy is better than no texture
+            if (meta != null) return Files.readAllBytes(bodyFile);
+            throw e;
+        }
+
+        int status = response.statusCode();
+        if (status == 304 && meta != null) {
+            return Files.readAllBytes(bodyFile);
+        }
+        if (status < 200 || status >= 300) {
+            throw new TextureException("HTTP " + status + " loading texture " + url);
+        }
+
+        byte[] body = response.body();
+        if (bodyFile != null) {
+            writeToDisk(bodyFile, metaFile, body, response);
+        }
+        return body;
+    }
+
+    private static Properties readMeta(Path bodyFile, Path metaFile) {
+        if (!Files.isRegularFile(bodyFile) || !Files.isRegularFile(metaFile)) return null;
+
+        Properties meta = new Properties();
+        try (InputStream inputStream = Files.newInputStream(metaFile)) {
+            meta.load(inputStream);
+            return meta;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeToDisk(Path bodyFile, Path metaFile, byte[] body, HttpResponse<?> response) {
+        Properties meta = new Properties();
+        response.headers().firstValue("ETag").ifPresent(value -> meta.setProperty("etag", value));
+        response.headers().firstValue("Last-Modified").ifPresent(value -> meta.setProperty("lastModified", value));
+
+        if (meta.isEmpty()) {
+            // nothing to revalidate with, keep the response out of the disk cache
+            return;
+        }
+
+        try {
+            Files.createDirectories(diskCacheDir);
+            Path tempBody = Files.createTempFile(diskCacheDir, "body", ".tmp");
+            Files.write(tempBody, body);
+            Files.move(tempBody, bodyFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            Path tempMeta = Files.createTempFile(diskCacheDir, "meta", ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(tempMeta)) {
+                meta.store(outputStream, null);
+            }
+            Files.move(tempMeta, metaFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the disk cache is best effort, the texture is still delivered
+        }
+    }
+
+    private static String key(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -17,6 +17,7 @@
  */
 package com.ancevt.d2d2.display.texture;
 
+import com.ancevt.d2d2.display.SimpleContainer;
 import com.ancevt.d2d2.display.text.Text;
 import lombok.Getter;
 import lombok.Setter;
@@ -52,6 +53,19 @@ public class TextureManager {
         return result;
     }
 
+    /**
+     * @return true if the texture engine accepts {@link #loadTexture(DecodedImage)}
+     */
+    public boolean isDecodedImageSupported() {
+        return textureEngine.isDecodedImageSupported();
+    }
+
+    public Texture loadTexture(DecodedImage image) {
+        final Texture result = textureEngine.createTexture(image);
+        textures.add(result);
+        return result;
+    }
+
     public Texture loadTexture(String assetPath) {
         if (textureCache.containsKey(assetPath)) {
             return textureCache.get(assetPath);
@@ -63,6 +77,46 @@ public class TextureManager {
         return result;
     }
 
+    /**
+     * Loads several PNG assets, decoding them in parallel and then creating the textures on the calling thread,
+     * which for GPU engines must own the graphics context. Already cached paths are not decoded again.
+     *
+     * @return textures in the order of {@code assetPaths}
+     */
+    public List<Texture> loadTextures(String... assetPaths) {
+        if (!isDecodedImageSupported()) {
+            List<Texture> result = new ArrayList<>(assetPaths.length);
+            for (String assetPath : assetPaths) {
+                result.add(loadTexture(assetPath));
+            }
+            return result;
+        }
+
+        List<String> pending = new ArrayList<>();
+        for (String assetPath : assetPaths) {
+            if (!textureCache.containsKey(assetPath) && !pending.contains(assetPath)) {
+                pending.add(assetPath);
+            }
+        }
+
+        List<DecodedImage> images = PngTextureDecoder.getDefault().decodeAssets(pending, false);
+        try {
+            for (int i = 0; i < pending.size(); i++) {
+                Texture texture = textureEngine.createTexture(images.get(i));
+                textures.add(texture);
+                textureCache.put(pending.get(i), texture);
+            }
+        } finally {
+            images.forEach(DecodedImage::close);
+        }
+
+        List<Texture> result = new ArrayList<>(assetPaths.length);
+        for (String assetPath : assetPaths) {
+            result.add(textureCache.get(assetPath));
+        }
+        return result;
+    }
+
     public void unloadTexture(Texture texture) {
         textureEngine.unloadTexture(texture);
         textures.remove(texture);
@@ -87,6 +141,12 @@ public class TextureManager {
         return texture;
     }
 
+    public Texture containerToTexture(SimpleContainer container) {
+        Texture texture = textureEngine.containerToTexture(container);
+        if (texture != null) textures.add(texture);
+        return texture;
+    }
+
     public int getTextureCount() {
         return textures.size();
     }
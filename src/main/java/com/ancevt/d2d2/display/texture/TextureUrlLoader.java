@@ -17,26 +17,32 @@
  */
 package com.ancevt.d2d2.display.texture;
 
-import com.ancevt.d2d2.D2D2;
 import com.ancevt.d2d2.event.BaseEventDispatcher;
 import com.ancevt.d2d2.event.TextureUrlLoaderEvent;
 
-import java.io.ByteArrayInputStream;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.util.concurrent.CompletionException;
 
+/**
+ * Loads a texture by URL through a shared {@link TextureHttpCache} and dispatches the result on its delivery
+ * thread, the main loop by default
+ */
 public class TextureUrlLoader extends BaseEventDispatcher {
 
+    private final TextureHttpCache cache;
     private String url;
     private Texture lastLoadedTexture;
 
-    public TextureUrlLoader(String url) {
+    public TextureUrlLoader(String url, TextureHttpCache cache) {
         this.url = url;
+        this.cache = cache;
+    }
+
+    public TextureUrlLoader(String url) {
+        this(url, TextureHttpCache.getDefault());
     }
 
     public TextureUrlLoader() {
+        this(null);
     }
 
     public void load() {
@@ -44,7 +50,21 @@ public class TextureUrlLoader extends BaseEventDispatcher {
         dispatchEvent(TextureUrlLoaderEvent.builder()
                 .type(TextureUrlLoaderEvent.TEXTURE_LOAD_START)
                 .build());
-        loadBytes(url);
+
+        cache.load(url).whenComplete((texture, throwable) -> {
+            if (throwable != null) {
+                dispatchEvent(TextureUrlLoaderEvent.builder()
+                        .type(TextureUrlLoaderEvent.TEXTURE_LOAD_ERROR)
+                        .error(throwable instanceof CompletionException ? throwable.getCause() : throwable)
+                        .build());
+                return;
+            }
+            lastLoadedTexture = texture;
+            dispatchEvent(TextureUrlLoaderEvent.builder()
+                    .type(TextureUrlLoaderEvent.TEXTURE_LOAD_COMPLETE)
+                    .texture(texture)
+                    .build());
+        });
     }
 
     public void load(String url) {
@@ -52,27 +72,6 @@ public class TextureUrlLoader extends BaseEventDispatcher {
         load();
     }
 
-    private void loadBytes(String url) {
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(getUrl()))
-                .build();
-
-        client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
-                .thenApply(HttpResponse::body)
-                .thenApply(this::createTexture);
-    }
-
-    private byte[] createTexture(byte[] bytes) {
-        this.lastLoadedTexture = D2D2.textureManager().loadTexture(new ByteArrayInputStream(bytes));
-        dispatchEvent(TextureUrlLoaderEvent.builder()
-                .type(TextureUrlLoaderEvent.TEXTURE_LOAD_COMPLETE)
-                .bytes(bytes)
-                .texture(lastLoadedTexture)
-                .build());
-        return bytes;
-    }
-
     public void setUrl(String url) {
         this.url = url;
     }
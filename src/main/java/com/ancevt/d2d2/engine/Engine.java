@@ -22,6 +22,7 @@ import com.ancevt.d2d2.display.Stage;
 import com.ancevt.d2d2.display.text.Font;
 import com.ancevt.d2d2.display.text.TrueTypeFontBuilder;
 import com.ancevt.d2d2.event.EventDispatcher;
+import com.ancevt.d2d2.exception.NotImplementedException;
 
 public interface Engine extends EventDispatcher {
 
@@ -53,6 +54,24 @@ public interface Engine extends EventDispatcher {
 
     default boolean isSmoothMode() {return false;}
 
+    /**
+     * Runs the given number of frames immediately on the calling thread, advancing the
+     * virtual {@link com.ancevt.d2d2.time.Clock} by one frame duration each; the previous clock mode is restored afterwards, so enable virtual time beforehand
+     * if it has to carry over between calls
+     */
+    default void step(int ticks) {
+        throw new NotImplementedException("step is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * In unthrottled mode the main loop does not sleep and time is virtual
+     */
+    default void setUnthrottled(boolean value) {
+        throw new NotImplementedException("unthrottled mode is not supported by " + getClass().getSimpleName());
+    }
+
+    default boolean isUnthrottled() {return false;}
+
     Font generateBitmapFont(TrueTypeFontBuilder trueTypeFontBuilder);
 
     void setTimerCheckFrameFrequency(int v);
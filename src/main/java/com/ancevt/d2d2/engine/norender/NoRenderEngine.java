@@ -29,6 +29,7 @@ import com.ancevt.d2d2.event.Event;
 import com.ancevt.d2d2.event.EventPool;
 import com.ancevt.d2d2.event.LifecycleEvent;
 import com.ancevt.d2d2.input.Mouse;
+import com.ancevt.d2d2.time.Clock;
 import com.ancevt.d2d2.time.Timer;
 import lombok.Getter;
 import lombok.Setter;
@@ -46,6 +47,9 @@ public class NoRenderEngine extends BaseEventDispatcher implements Engine {
     private int fps = frameRate;
     private long time;
     private long tick;
+    private boolean unthrottled;
+    // clock mode to restore when unthrottled mode is turned off
+    private boolean virtualBeforeUnthrottled;
 
     @Getter
     private int canvasWidth;
@@ -111,7 +115,14 @@ public class NoRenderEngine extends BaseEventDispatcher implements Engine {
     public void create() {
         stage = new Stage();
         stage.setSize(initialWidth, initialHeight);
-        renderer = new NoRenderRendererStub(stage);
+        renderer = createRenderer(stage);
+    }
+
+    /**
+     * For overriding by engines that draw, called once the stage is created
+     */
+    protected Renderer createRenderer(Stage stage) {
+        return new NoRenderRendererStub(stage);
     }
 
     @Override
@@ -155,8 +166,44 @@ public class NoRenderEngine extends BaseEventDispatcher implements Engine {
         return null;
     }
 
+    @Override
+    public void step(int ticks) {
+        boolean wasVirtual = Clock.isVirtual();
+        Clock.setVirtual(true);
+        try {
+            for (int i = 0; i < ticks; i++) {
+                advanceFrame();
+            }
+        } finally {
+            Clock.setVirtual(wasVirtual);
+        }
+    }
+
+    @Override
+    public void setUnthrottled(boolean value) {
+        if (value == unthrottled) return;
+        this.unthrottled = value;
+
+        if (value) {
+            virtualBeforeUnthrottled = Clock.isVirtual();
+            Clock.setVirtual(true);
+        } else {
+            Clock.setVirtual(virtualBeforeUnthrottled);
+        }
+    }
+
+    @Override
+    public boolean isUnthrottled() {
+        return unthrottled;
+    }
+
     private void startNoRenderLoop() {
         while (running) {
+            if (unthrottled) {
+                advanceFrame();
+                continue;
+            }
+
             try {
                 renderer.renderFrame();
                 if (fps > frameRate) {
@@ -168,19 +215,31 @@ public class NoRenderEngine extends BaseEventDispatcher implements Engine {
                 e.printStackTrace();
             }
 
-            frameCounter++;
-            final long time2 = System.currentTimeMillis();
+            // the clock may have been switched to virtual time from outside the engine
+            if (Clock.isVirtual()) Clock.advance(1_000_000_000L / frameRate);
+            afterFrame();
+        }
+    }
 
-            if (time2 - time >= 1000) {
-                time = System.currentTimeMillis();
-                fps = frameCounter;
-                frameCounter = 0;
-            }
+    private void advanceFrame() {
+        renderer.renderFrame();
+        Clock.advance(1_000_000_000L / frameRate);
+        afterFrame();
+    }
 
-            tick++;
+    private void afterFrame() {
+        frameCounter++;
+        final long time2 = System.currentTimeMillis();
 
-            if (tick % timerCheckFrameFrequency == 0) Timer.processTimers();
+        if (time2 - time >= 1000) {
+            time = System.currentTimeMillis();
+            fps = frameCounter;
+            frameCounter = 0;
         }
+
+        tick++;
+
+        if (tick % timerCheckFrameFrequency == 0) Timer.processTimers();
     }
 
 
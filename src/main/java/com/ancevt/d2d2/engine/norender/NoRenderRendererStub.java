@@ -17,18 +17,49 @@
  */
 package com.ancevt.d2d2.engine.norender;
 
+import com.ancevt.d2d2.display.BaseDisplayObject;
 import com.ancevt.d2d2.display.Container;
 import com.ancevt.d2d2.display.DisplayObject;
 import com.ancevt.d2d2.display.Playable;
 import com.ancevt.d2d2.display.Renderer;
+import com.ancevt.d2d2.display.SimpleContainer;
 import com.ancevt.d2d2.display.Stage;
 import com.ancevt.d2d2.event.Event;
 import com.ancevt.d2d2.event.EventPool;
+import lombok.Getter;
+import lombok.Setter;
 
 public class NoRenderRendererStub implements Renderer {
 
     private final Stage stage;
     private int zOrderCounter;
+    private int updateCount;
+    private long frameCounter;
+
+    private float viewportX;
+    private float viewportY;
+    private float viewportWidth = -1f;
+    private float viewportHeight = -1f;
+
+    /**
+     * Subtrees whose bounds lie completely outside the viewport are not drawn
+     */
+    @Getter
+    @Setter
+    private boolean cullingEnabled = true;
+
+    /**
+     * Off-screen subtrees are updated only every N-th frame, 1 updates them every frame
+     */
+    @Getter
+    @Setter
+    private int offscreenUpdateInterval = 1;
+
+    /**
+     * Number of subtrees found off-screen during the last frame
+     */
+    @Getter
+    private int culledCount;
 
     public NoRenderRendererStub(Stage stage) {
         this.stage = stage;
@@ -44,36 +75,163 @@ public class NoRenderRendererStub implements Renderer {
 
     }
 
+    /**
+     * Sets the visible area in stage coordinates (e.g. a camera), by default the stage size is used
+     */
+    public void setViewport(float x, float y, float width, float height) {
+        viewportX = x;
+        viewportY = y;
+        viewportWidth = width;
+        viewportHeight = height;
+    }
+
+    public void resetViewport() {
+        setViewport(0f, 0f, -1f, -1f);
+    }
+
     @Override
     public void renderFrame() {
         zOrderCounter = 0;
-        renderDisplayObject(stage);
+        culledCount = 0;
+        updateCount = 0;
+        frameCounter++;
+        renderDisplayObject(stage, 1f, 0f, 0f, 1f, 0f, 0f, false);
+    }
+
+    /**
+     * @return number of objects that received frame updates during the last frame
+     */
+    public int getUpdatedCount() {
+        return updateCount;
     }
 
-    private void renderDisplayObject(DisplayObject displayObject) {
+    /**
+     * @param a   parent world transform, x' = a * x + c * y + tx, y' = b * x + d * y + ty
+     * @param offscreen true if an ancestor was culled
+     */
+    private void renderDisplayObject(DisplayObject displayObject,
+                                     float a, float b, float c, float d, float tx, float ty,
+                                     boolean offscreen) {
         if (!displayObject.isVisible()) return;
 
-        displayObject.onEnterFrame();
-        displayObject.dispatchEvent(EventPool.simpleEventSingleton(Event.ENTER_FRAME, displayObject));
+        float x = displayObject.getX();
+        float y = displayObject.getY();
+        float sx = displayObject.getScaleX();
+        float sy = displayObject.getScaleY();
+        float la = sx;
+        float lb = 0f;
+        float lc = 0f;
+        float ld = sy;
+
+        float rotation = displayObject.getRotation();
+        if (rotation != 0f) {
+            double radians = Math.toRadians(rotation);
+            float cos = (float) Math.cos(radians);
+            float sin = (float) Math.sin(radians);
+            la = cos * sx;
+            lb = sin * sx;
+            lc = -sin * sy;
+            ld = cos * sy;
+        }
+
+        float wa = a * la + c * lb;
+        float wb = b * la + d * lb;
+        float wc = a * lc + c * ld;
+        float wd = b * lc + d * ld;
+        float wtx = a * x + c * y + tx;
+        float wty = b * x + d * y + ty;
+
+        if (!offscreen && cullingEnabled && isOutsideViewport(displayObject, wa, wb, wc, wd, wtx, wty)) {
+            offscreen = true;
+            culledCount++;
+
+            // spread reduced-rate updates of different subtrees over frames
+            if (offscreenUpdateInterval > 1
+                && (frameCounter + displayObject.getDisplayObjectId()) % offscreenUpdateInterval != 0) {
+                return;
+            }
+        }
+
+        // objects that are not update-active skip the per-frame hooks, see BaseDisplayObject#isUpdateActive()
+        boolean updateActive = !(displayObject instanceof BaseDisplayObject base) || base.isUpdateActive();
+
+        if (updateActive) {
+            updateCount++;
 
-        displayObject.onLoopUpdate();
-        displayObject.dispatchEvent(EventPool.simpleEventSingleton(Event.LOOP_UPDATE, displayObject));
+            displayObject.onEnterFrame();
+            displayObject.dispatchEvent(EventPool.simpleEventSingleton(Event.ENTER_FRAME, displayObject));
+
+            displayObject.onLoopUpdate();
+            displayObject.dispatchEvent(EventPool.simpleEventSingleton(Event.LOOP_UPDATE, displayObject));
+        }
 
         zOrderCounter++;
         displayObject.setAbsoluteZOrderIndex(zOrderCounter);
 
+        // a cached subtree is drawn as its cached sprite, children are still visited for updates
+        if (displayObject instanceof SimpleContainer simpleContainer && simpleContainer.isCacheAsTexture()) {
+            simpleContainer.cachedSprite();
+        }
+
         if (displayObject instanceof Container container) {
             for (int i = 0; i < container.getNumChildren(); i++) {
-                renderDisplayObject(container.getChild(i));
+                renderDisplayObject(container.getChild(i), wa, wb, wc, wd, wtx, wty, offscreen);
+            }
+        }
+
+        if (updateActive) {
+            if (displayObject instanceof Playable playable) {
+                playable.processFrame();
             }
+
+            displayObject.onExitFrame();
+            displayObject.dispatchEvent(EventPool.simpleEventSingleton(Event.EXIT_FRAME, displayObject));
+        }
+    }
+
+    private boolean isOutsideViewport(DisplayObject displayObject,
+                                      float a, float b, float c, float d, float tx, float ty) {
+        if (displayObject == stage) return false;
+
+        float left;
+        float top;
+        float right;
+        float bottom;
+
+        if (displayObject instanceof SimpleContainer container) {
+            if (!container.hasFiniteBounds()) return false;
+            left = container.getBoundsMinX();
+            top = container.getBoundsMinY();
+            right = container.getBoundsMaxX();
+            bottom = container.getBoundsMaxY();
+        } else {
+            left = displayObject.getBoundsMinX();
+            top = displayObject.getBoundsMinY();
+            right = displayObject.getBoundsMaxX();
+            bottom = displayObject.getBoundsMaxY();
+            if (left == right && top == bottom) return false;
         }
 
-        if (displayObject instanceof Playable) {
-            ((Playable) displayObject).processFrame();
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+
+        for (int corner = 0; corner < 4; corner++) {
+            float px = (corner & 1) == 0 ? left : right;
+            float py = (corner & 2) == 0 ? top : bottom;
+            float wx = a * px + c * py + tx;
+            float wy = b * px + d * py + ty;
+            minX = Math.min(minX, wx);
+            maxX = Math.max(maxX, wx);
+            minY = Math.min(minY, wy);
+            maxY = Math.max(maxY, wy);
         }
 
-        displayObject.onExitFrame();
-        displayObject.dispatchEvent(EventPool.simpleEventSingleton(Event.EXIT_FRAME, displayObject));
+        float width = viewportWidth < 0f ? stage.getWidth() : viewportWidth;
+        float height = viewportHeight < 0f ? stage.getHeight() : viewportHeight;
+
+        return maxX < viewportX || maxY < viewportY || minX > viewportX + width || minY > viewportY + height;
     }
 
     private void dispatchLoopUpdate(DisplayObject o) {
@@ -19,23 +19,24 @@ package com.ancevt.d2d2.engine.norender;
 
 import com.ancevt.d2d2.D2D2;
 import com.ancevt.d2d2.asset.Assets;
+import com.ancevt.d2d2.display.SimpleContainer;
 import com.ancevt.d2d2.display.text.Text;
+import com.ancevt.d2d2.display.texture.DecodedImage;
 import com.ancevt.d2d2.display.texture.ITextureEngine;
+import com.ancevt.d2d2.display.texture.PngTextureDecoder;
 import com.ancevt.d2d2.display.texture.Texture;
 import com.ancevt.d2d2.display.texture.TextureClipCombinerCell;
+import com.ancevt.d2d2.display.texture.TextureCompositor;
 
-
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
 public class NoRenderTextureEngine implements ITextureEngine {
     private int textureIdCounter;
-    private final Map<Integer, Image> images;
+    // ARGB pixels by texture id, handed out without copying
+    private final Map<Integer, int[]> images;
+    private final TextureCompositor compositor = new TextureCompositor(this::getPixels);
 
     public NoRenderTextureEngine() {
         images = new HashMap<>();
@@ -58,20 +59,23 @@ public class NoRenderTextureEngine implements ITextureEngine {
 
     @Override
     public Texture createTexture(InputStream pngInputStream) {
-        try {
-            BufferedImage image = ImageIO.read(pngInputStream);
-            textureIdCounter++;
-            images.put(textureIdCounter, image);
-            return new Texture(
-                textureIdCounter,
-                    image.getWidth(),
-                    image.getHeight()
-            );
-        } catch (IOException e) {
-            throw new IllegalStateException(e);
+        try (DecodedImage image = PngTextureDecoder.getDefault().decode(pngInputStream)) {
+            return createTexture(image);
         }
     }
 
+    @Override
+    public boolean isDecodedImageSupported() {
+        return true;
+    }
+
+    @Override
+    public Texture createTexture(DecodedImage decodedImage) {
+        textureIdCounter++;
+        images.put(textureIdCounter, decodedImage.toArgb());
+        return new Texture(textureIdCounter, decodedImage.getWidth(), decodedImage.getHeight());
+    }
+
     @Override
     public Texture createTexture(String assetPath) {
         return createTexture(Assets.getAsset(assetPath));
@@ -80,10 +84,17 @@ public class NoRenderTextureEngine implements ITextureEngine {
     @Override
     public Texture createTexture(int width, int height, TextureClipCombinerCell[] cells) {
         textureIdCounter++;
-        images.put(textureIdCounter, new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+        images.put(textureIdCounter, compositor.composite(width, height, cells));
         return new Texture(textureIdCounter, width, height);
     }
 
+    /**
+     * @return ARGB pixels of a loaded texture, row by row, or null. The array is the texture itself, not a copy
+     */
+    public int[] getPixels(Texture texture) {
+        return images.get(texture.getId());
+    }
+
     @Override
     public void unloadTexture(Texture texture) {
         images.remove(texture.getId());
@@ -98,4 +109,13 @@ public class NoRenderTextureEngine implements ITextureEngine {
         D2D2.textureManager().addTextureClip("_texture_text_" + texture.getId(), texture.createTextureClip());
         return texture;
     }
+
+    @Override
+    public Texture containerToTexture(SimpleContainer container) {
+        int width = (int) Math.ceil(container.getBoundsMaxX() - container.getBoundsMinX());
+        int height = (int) Math.ceil(container.getBoundsMaxY() - container.getBoundsMinY());
+        textureIdCounter++;
+        images.put(textureIdCounter, new int[width * height]);
+        return new Texture(textureIdCounter, width, height);
+    }
 }
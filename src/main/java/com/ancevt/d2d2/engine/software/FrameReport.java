@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.engine.software;
+
+/**
+ * Where the time of one software-rendered frame went
+ *
+ * @param updateNanos frame hooks, events and playables
+ * @param buildNanos  flattening the display tree into the render list
+ * @param rasterNanos clearing and rasterising all tiles
+ */
+public record FrameReport(long updateNanos,
+                          long buildNanos,
+                          long rasterNanos,
+                          int commandCount,
+                          int tileCount,
+                          long budgetNanos) {
+
+    public long totalNanos() {
+        return updateNanos + buildNanos + rasterNanos;
+    }
+
+    public boolean isOverBudget() {
+        return totalNanos() > budgetNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "frame %.2f ms of %.2f ms budget (update %.2f, build %.2f, raster %.2f), %d commands in %d tiles%s".formatted(
+            totalNanos() / 1e6, budgetNanos / 1e6,
+            updateNanos / 1e6, buildNanos / 1e6, rasterNanos / 1e6,
+            commandCount, tileCount,
+            isOverBudget() ? ", OVER BUDGET" : ""
+        );
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.engine.software;
+
+import com.ancevt.d2d2.D2D2;
+import com.ancevt.d2d2.display.Renderer;
+import com.ancevt.d2d2.display.Stage;
+import com.ancevt.d2d2.engine.norender.NoRenderEngine;
+import lombok.Getter;
+
+/**
+ * {@link NoRenderEngine} that draws every frame with a {@link SoftwareRenderer}
+ */
+public class SoftwareEngine extends NoRenderEngine {
+
+    @Getter
+    private final SoftwareTextureEngine textureEngine = new SoftwareTextureEngine();
+
+    public SoftwareEngine(int initialWidth, int initialHeight, String title) {
+        super(initialWidth, initialHeight, title);
+        D2D2.textureManager().setTextureEngine(textureEngine);
+    }
+
+    @Override
+    protected Renderer createRenderer(Stage stage) {
+        return new SoftwareRenderer(stage, textureEngine);
+    }
+
+    public SoftwareRenderer getSoftwareRenderer() {
+        return (SoftwareRenderer) getRenderer();
+    }
+}
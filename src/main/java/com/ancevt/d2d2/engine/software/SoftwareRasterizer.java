@@ -0,0 +1,279 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.engine.software;
+
+import com.ancevt.d2d2.display.DisplayObject;
+import com.ancevt.d2d2.display.shape.FreeShape;
+import com.ancevt.d2d2.display.shape.LineBatch;
+import com.ancevt.d2d2.display.shape.Triangle;
+import com.ancevt.d2d2.display.text.BitmapCharInfo;
+import com.ancevt.d2d2.display.text.Font;
+import com.ancevt.d2d2.display.text.Text;
+import com.ancevt.d2d2.display.texture.ArgbPixels;
+import com.ancevt.d2d2.render.RenderList;
+
+/**
+ * Draws render list commands into an ARGB pixel array. Every method takes a clip rectangle
+ * {@code [clipX0, clipX1) x [clipY0, clipY1)} and touches no pixel outside of it, so threads can
+ * draw disjoint tiles of one target at the same time. Sampling is nearest-neighbour, blending is
+ * source-over on non-premultiplied colours.
+ */
+final class SoftwareRasterizer {
+
+    private final int[] target;
+    private final int width;
+    private final SoftwareTextureEngine textures;
+
+    SoftwareRasterizer(int[] target, int width, SoftwareTextureEngine textures) {
+        this.target = target;
+        this.width = width;
+        this.textures = textures;
+    }
+
+    void fill(int argb, int clipX0, int clipY0, int clipX1, int clipY1) {
+        for (int y = clipY0; y < clipY1; y++) {
+            int row = y * width;
+            for (int x = clipX0; x < clipX1; x++) {
+                target[row + x] = argb;
+            }
+        }
+    }
+
+    void drawCommand(RenderList list, int i, int clipX0, int clipY0, int clipX1, int clipY1) {
+        float a = list.getA(i);
+        float b = list.getB(i);
+        float c = list.getC(i);
+        float d = list.getD(i);
+        float tx = list.getTx(i);
+        float ty = list.getTy(i);
+        float alpha = list.getAlpha(i);
+
+        if (list.getKind(i) == RenderList.QUAD) {
+            drawQuad(a, b, c, d, tx, ty, list.getWidth(i), list.getHeight(i),
+                list.getTextureId(i), list.getClipX(i), list.getClipY(i), list.getClipWidth(i), list.getClipHeight(i),
+                list.getColor(i), alpha, clipX0, clipY0, clipX1, clipY1);
+            return;
+        }
+
+        DisplayObject object = list.getObject(i);
+        if (object instanceof FreeShape freeShape) {
+            int argb = ArgbPixels.withAlpha(list.getColor(i), alpha);
+            for (Triangle triangle : freeShape.getTriangles()) {
+                drawTriangle(
+                    a * triangle.getX1() + c * triangle.getY1() + tx, b * triangle.getX1() + d * triangle.getY1() + ty,
+                    a * triangle.getX2() + c * triangle.getY2() + tx, b * triangle.getX2() + d * triangle.getY2() + ty,
+                    a * triangle.getX3() + c * triangle.getY3() + tx, b * triangle.getX3() + d * triangle.getY3() + ty,
+                    argb, clipX0, clipY0, clipX1, clipY1
+                );
+            }
+        } else if (object instanceof LineBatch lineBatch) {
+            int argb = ArgbPixels.withAlpha(list.getColor(i), alpha);
+            float halfWidth = Math.max(0.5f, lineBatch.getLineWidth() * (float) Math.sqrt(Math.abs(a * d - b * c)) / 2f);
+            for (LineBatch.Line line : lineBatch.getLines()) {
+                float x1 = a * line.getVertexA().x + c * line.getVertexA().y + tx;
+                float y1 = b * line.getVertexA().x + d * line.getVertexA().y + ty;
+                float x2 = a * line.getVertexB().x + c * line.getVertexB().y + tx;
+                float y2 = b * line.getVertexB().x + d * line.getVertexB().y + ty;
+                drawLine(x1, y1, x2, y2, halfWidth, argb, clipX0, clipY0, clipX1, clipY1);
+            }
+        } else if (object instanceof Text text) {
+            drawText(text, text.getColor() == null ? 0xFFFFFF : text.getColor().getValue(),
+                a, b, c, d, tx, ty, alpha, clipX0, clipY0, clipX1, clipY1);
+        }
+    }
+
+    /**
+     * Lays glyphs out the way {@link Text#getTextWidth()} measures them
+     *
+     * @param defaultColor colour of letters that have no colour of their own
+     */
+    void drawText(Text text, int defaultColor, float a, float b, float c, float d, float tx, float ty, float alpha,
+                  int clipX0, int clipY0, int clipX1, int clipY1) {
+        if (text.isEmpty()) return;
+
+        Font font = text.getFont();
+        int textureId = font.getTexture().getId();
+        String chars = text.getPlainText();
+        float lineHeight = (int) (font.getZeroCharHeight() + text.getLineSpacing());
+        float boxWidth = text.getWidth();
+
+        float penX = 0f;
+        float penY = 0f;
+
+        for (int index = 0; index < chars.length(); index++) {
+            char character = chars.charAt(index);
+
+            if (character == '\n' || (boxWidth > 0 && penX > text.getMaxWidth())) {
+                if (!text.isMultiline()) return;
+                penX = 0f;
+                penY += lineHeight;
+                if (character == '\n') continue;
+            }
+
+            BitmapCharInfo info = font.getCharInfo(character);
+            if (info == null) continue;
+
+            int color = defaultColor;
+            if (text.isMulticolor() && text.getColorTextData() != null) {
+                var letterColor = text.getColorTextData().getColoredLetter(index).getColor();
+                if (letterColor != null) color = letterColor.getValue();
+            }
+
+            drawQuad(a, b, c, d, a * penX + c * penY + tx, b * penX + d * penY + ty,
+                info.width(), info.height(),
+                textureId, info.x(), info.y(), info.width(), info.height(),
+                color, alpha, clipX0, clipY0, clipX1, clipY1);
+
+            penX += info.width() + text.getSpacing();
+        }
+    }
+
+    private void drawQuad(float a, float b, float c, float d, float tx, float ty, float quadWidth, float quadHeight,
+                          int textureId, int clipX, int clipY, int clipWidth, int clipHeight,
+                          int color, float alpha, int clipX0, int clipY0, int clipX1, int clipY1) {
+        float determinant = a * d - b * c;
+        if (determinant == 0f || quadWidth <= 0f || quadHeight <= 0f) return;
+
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int corner = 0; corner < 4; corner++) {
+            float px = (corner & 1) == 0 ? 0f : quadWidth;
+            float py = (corner & 2) == 0 ? 0f : quadHeight;
+            float x = a * px + c * py + tx;
+            float y = b * px + d * py + ty;
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+
+        int x0 = Math.max(clipX0, (int) Math.floor(minX));
+        int y0 = Math.max(clipY0, (int) Math.floor(minY));
+        int x1 = Math.min(clipX1, (int) Math.ceil(maxX));
+        int y1 = Math.min(clipY1, (int) Math.ceil(maxY));
+        if (x0 >= x1 || y0 >= y1) return;
+
+        SoftwareTextureEngine.Pixels texture = null;
+        if (textureId != RenderList.NO_TEXTURE) {
+            texture = textures.getPixels(textureId);
+            if (texture == null || clipWidth <= 0 || clipHeight <= 0) return;
+        }
+
+        // inverse transform: screen -> quad space
+        float uX = d / determinant;
+        float uY = -c / determinant;
+        float vX = -b / determinant;
+        float vY = a / determinant;
+
+        int solid = ArgbPixels.withAlpha(color, alpha);
+        boolean tinted = color != 0xFFFFFF || alpha != 1f;
+
+        for (int y = y0; y < y1; y++) {
+            float dy = y + 0.5f - ty;
+            float dx = x0 + 0.5f - tx;
+            float u = uX * dx + uY * dy;
+            float v = vX * dx + vY * dy;
+            int row = y * width;
+
+            for (int x = x0; x < x1; x++, u += uX, v += vX) {
+                if (u < 0f || v < 0f || u >= quadWidth || v >= quadHeight) continue;
+
+                int source;
+                if (texture == null) {
+                    source = solid;
+                } else {
+                    int textureX = clipX + (int) u % clipWidth;
+                    int textureY = clipY + (int) v % clipHeight;
+                    if (textureX >= texture.width() || textureY >= texture.height()) continue;
+                    source = texture.argb()[textureY * texture.width() + textureX];
+                    if (tinted) source = ArgbPixels.modulate(source, color, alpha);
+                }
+
+                target[row + x] = ArgbPixels.blend(target[row + x], source);
+            }
+        }
+    }
+
+    private void drawLine(float x1, float y1, float x2, float y2, float halfWidth, int argb,
+                          int clipX0, int clipY0, int clipX1, int clipY1) {
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length == 0f) return;
+
+        float nx = -dy / length * halfWidth;
+        float ny = dx / length * halfWidth;
+
+        drawTriangle(x1 + nx, y1 + ny, x2 + nx, y2 + ny, x2 - nx, y2 - ny, argb, clipX0, clipY0, clipX1, clipY1);
+        drawTriangle(x1 + nx, y1 + ny, x2 - nx, y2 - ny, x1 - nx, y1 - ny, argb, clipX0, clipY0, clipX1, clipY1);
+    }
+
+    private void drawTriangle(float x1, float y1, float x2, float y2, float x3, float y3, int argb,
+                              int clipX0, int clipY0, int clipX1, int clipY1) {
+        float area = (x2 - x1) * (y3 - y1) - (y2 - y1) * (x3 - x1);
+        if (area == 0f) return;
+        if (area < 0f) {
+            float swapX = x2;
+            float swapY = y2;
+            x2 = x3;
+            y2 = y3;
+            x3 = swapX;
+            y3 = swapY;
+        }
+
+        int x0 = Math.max(clipX0, (int) Math.floor(Math.min(x1, Math.min(x2, x3))));
+        int y0 = Math.max(clipY0, (int) Math.floor(Math.min(y1, Math.min(y2, y3))));
+        int xEnd = Math.min(clipX1, (int) Math.ceil(Math.max(x1, Math.max(x2, x3))));
+        int yEnd = Math.min(clipY1, (int) Math.ceil(Math.max(y1, Math.max(y2, y3))));
+
+        // top-left rule: a pixel center on a shared edge belongs to exactly one of the two triangles
+        boolean topLeft12 = isTopLeft(x1, y1, x2, y2);
+        boolean topLeft23 = isTopLeft(x2, y2, x3, y3);
+        boolean topLeft31 = isTopLeft(x3, y3, x1, y1);
+
+        for (int y = y0; y < yEnd; y++) {
+            float py = y + 0.5f;
+            int row = y * width;
+            for (int x = x0; x < xEnd; x++) {
+                float px = x + 0.5f;
+                if (!covers(edge(x1, y1, x2, y2, px, py), topLeft12)) continue;
+                if (!covers(edge(x2, y2, x3, y3, px, py), topLeft23)) continue;
+                if (!covers(edge(x3, y3, x1, y1, px, py), topLeft31)) continue;
+                target[row + x] = ArgbPixels.blend(target[row + x], argb);
+            }
+        }
+    }
+
+    private static float edge(float ax, float ay, float bx, float by, float px, float py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+    private static boolean covers(float edge, boolean topLeft) {
+        return edge > 0f || (edge == 0f && topLeft);
+    }
+
+    /**
+     * For the winding used by drawTriangle (y down): a top edge runs horizontally to the right,
+     * a left edge runs up
+     */
+    private static boolean isTopLeft(float ax, float ay, float bx, float by) {
+        return (ay == by && bx > ax) || by < ay;
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.engine.software;
+
+import com.ancevt.d2d2.display.Stage;
+import com.ancevt.d2d2.engine.norender.NoRenderRendererStub;
+import com.ancevt.d2d2.render.RenderList;
+import com.ancevt.d2d2.render.RenderListBuilder;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * CPU renderer producing real pixels without a GPU, for screenshots in CI, server-side thumbnails
+ * and performance tests on headless machines.
+ * <p>
+ * Frame updates run exactly as in {@link NoRenderRendererStub}. The stage is then flattened by a
+ * {@link RenderListBuilder}, commands are binned into square screen tiles by their bounds, and
+ * the tiles are rasterised in parallel, each by one thread, into an ARGB framebuffer the size of
+ * the stage.
+ */
+public class SoftwareRenderer extends NoRenderRendererStub {
+
+    private final Stage stage;
+    private final SoftwareTextureEngine textureEngine;
+    @Getter
+    private final RenderListBuilder builder = new RenderListBuilder();
+    private final RenderList renderList = new RenderList();
+
+    @Getter
+    @Setter
+    private int tileSize = 64;
+
+    @Getter
+    @Setter
+    private boolean parallel = true;
+
+    @Getter
+    @Setter
+    private long frameBudgetNanos = 1_000_000_000L / 60;
+
+    @Getter
+    private int frameWidth;
+    @Getter
+    private int frameHeight;
+    private int[] framebuffer = new int[0];
+
+    // per tile lists of draw order positions, tile t owns tileCommands[tileOffsets[t] until tileOffsets[t + 1]]
+    private int[] tileOffsets = new int[0];
+    private int[] tileCommands = new int[0];
+
+    @Getter
+    private FrameReport lastReport;
+    @Getter
+    private long frameCount;
+    @Getter
+    private long overBudgetFrameCount;
+
+    public SoftwareRenderer(Stage stage, SoftwareTextureEngine textureEngine) {
+        super(stage);
+        this.stage = stage;
+        this.textureEngine = textureEngine;
+    }
+
+    @Override
+    public void renderFrame() {
+        long start = System.nanoTime();
+        super.renderFrame();
+        long updated = System.nanoTime();
+
+        builder.build(stage, renderList);
+        long built = System.nanoTime();
+
+        int tileCount = rasterize();
+        long rasterized = System.nanoTime();
+
+        lastReport = new FrameReport(
+            updated - start, built - updated, rasterized - built,
+            renderList.size(), tileCount, frameBudgetNanos
+        );
+        frameCount++;
+        if (lastReport.isOverBudget()) overBudgetFrameCount++;
+    }
+
+    private int rasterize() {
+        int width = Math.max(1, (int) Math.ceil(stage.getWidth()));
+        int height = Math.max(1, (int) Math.ceil(stage.getHeight()));
+        if (width != frameWidth || height != frameHeight) {
+            frameWidth = width;
+            frameHeight = height;
+            framebuffer = new int[width * height];
+        }
+
+        int tile = tileSize;
+        int columns = (width + tile - 1) / tile;
+        int rows = (height + tile - 1) / tile;
+        int tileCount = columns * rows;
+        binCommands(columns, rows, tileCount);
+
+        int background = 0xFF000000 | (stage.getBackgroundColor() == null ? 0 : stage.getBackgroundColor().getValue());
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer(framebuffer, width, textureEngine);
+
+        IntStream tiles = IntStream.range(0, tileCount);
+        if (parallel) tiles = tiles.parallel();
+        tiles.forEach(t -> {
+            int x0 = (t % columns) * tile;
+            int y0 = (t / columns) * tile;
+            int x1 = Math.min(x0 + tile, width);
+            int y1 = Math.min(y0 + tile, height);
+
+            rasterizer.fill(background, x0, y0, x1, y1);
+            for (int k = tileOffsets[t]; k < tileOffsets[t + 1]; k++) {
+                rasterizer.drawCommand(renderList, renderList.getOrder(tileCommands[k]), x0, y0, x1, y1);
+            }
+        });
+        return tileCount;
+    }
+
+    private void binCommands(int columns, int rows, int tileCount) {
+        if (tileOffsets.length < tileCount + 1) tileOffsets = new int[tileCount + 1];
+        Arrays.fill(tileOffsets, 0, tileCount + 1, 0);
+
+        int size = renderList.size();
+
+        // first pass counts commands per tile, second pass fills, both in draw order
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass == 1) {
+                int sum = 0;
+                for (int t = 0; t <= tileCount; t++) {
+                    int count = tileOffsets[t];
+                    tileOffsets[t] = sum;
+                    sum += count;
+                }
+                if (tileCommands.length < sum) tileCommands = new int[sum];
+            }
+
+            for (int position = 0; position < size; position++) {
+                int i = renderList.getOrder(position);
+                int fromColumn = clamp((int) Math.floor(renderList.getMinX(i) / tileSize), columns);
+                int toColumn = clamp((int) Math.floor(renderList.getMaxX(i) / tileSize), columns);
+                int fromRow = clamp((int) Math.floor(renderList.getMinY(i) / tileSize), rows);
+                int toRow = clamp((int) Math.floor(renderList.getMaxY(i) / tileSize), rows);
+
+                for (int row = fromRow; row <= toRow; row++) {
+                    for (int column = fromColumn; column <= toColumn; column++) {
+                        int t = row * columns + column;
+                        if (pass == 0) {
+                            tileOffsets[t]++;
+                        } else {
+                            tileCommands[tileOffsets[t]++] = position;
+                        }
+                    }
+                }
+            }
+        }
+
+        // the fill pass moved every offset to the start of the next tile
+        System.arraycopy(tileOffsets, 0, tileOffsets, 1, tileCount);
+        tileOffsets[0] = 0;
+    }
+
+    private static int clamp(int value, int count) {
+        return Math.max(0, Math.min(count - 1, value));
+    }
+
+    /**
+     * @return copy of the last frame as ARGB pixels, row by row
+     */
+    public int[] getPixels() {
+        return Arrays.copyOf(framebuffer, frameWidth * frameHeight);
+    }
+
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(frameWidth, frameHeight, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, frameWidth, frameHeight, framebuffer, 0, frameWidth);
+        return image;
+    }
+
+    public void writePng(Path path) {
+        try {
+            ImageIO.write(toImage(), "png", path.toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
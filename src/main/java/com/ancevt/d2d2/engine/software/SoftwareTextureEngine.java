@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.engine.software;
+
+import com.ancevt.d2d2.D2D2;
+import com.ancevt.d2d2.asset.Assets;
+import com.ancevt.d2d2.display.SimpleContainer;
+import com.ancevt.d2d2.display.text.Text;
+import com.ancevt.d2d2.display.texture.DecodedImage;
+import com.ancevt.d2d2.display.texture.ITextureEngine;
+import com.ancevt.d2d2.display.texture.PngTextureDecoder;
+import com.ancevt.d2d2.display.texture.Texture;
+import com.ancevt.d2d2.display.texture.TextureClipCombinerCell;
+import com.ancevt.d2d2.display.texture.TextureCompositor;
+import com.ancevt.d2d2.display.texture.TextureException;
+import com.ancevt.d2d2.render.RenderList;
+import com.ancevt.d2d2.render.RenderListBuilder;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps textures as non-premultiplied ARGB {@code int[]} pixel arrays for {@link SoftwareRenderer}
+ */
+public class SoftwareTextureEngine implements ITextureEngine {
+
+    /**
+     * @param argb non-premultiplied pixels, row by row
+     */
+    public record Pixels(int[] argb, int width, int height) {}
+
+    private final Map<Integer, Pixels> pixels = new ConcurrentHashMap<>();
+    private final TextureCompositor compositor = new TextureCompositor(texture -> {
+        Pixels source = pixels.get(texture.getId());
+        return source == null ? null : source.argb();
+    });
+    private int textureIdCounter;
+
+    @Override
+    public boolean bind(Texture texture) {
+        return pixels.containsKey(texture.getId());
+    }
+
+    @Override
+    public void enable(Texture texture) {
+
+    }
+
+    @Override
+    public void disable(Texture texture) {
+
+    }
+
+    @Override
+    public Texture createTexture(InputStream pngInputStream) {
+        try (DecodedImage image = PngTextureDecoder.getDefault().decode(pngInputStream)) {
+            return createTexture(image);
+        }
+    }
+
+    @Override
+    public boolean isDecodedImageSupported() {
+        return true;
+    }
+
+    @Override
+    public Texture createTexture(DecodedImage image) {
+        if (image.isPremultiplied()) {
+            throw new TextureException("Software textures are non-premultiplied");
+        }
+        return register(image.toArgb(), image.getWidth(), image.getHeight());
+    }
+
+    @Override
+    public Texture createTexture(String assetPath) {
+        return createTexture(Assets.getAsset(assetPath));
+    }
+
+    @Override
+    public Texture createTexture(int width, int height, TextureClipCombinerCell[] cells) {
+        return register(compositor.composite(width, height, cells), width, height);
+    }
+
+    @Override
+    public void unloadTexture(Texture texture) {
+        pixels.remove(texture.getId());
+    }
+
+    @Override
+    public Texture bitmapTextToTexture(Text text) {
+        int width = Math.max(1, (int) Math.ceil(text.getWidth()));
+        int height = Math.max(1, (int) Math.ceil(text.getHeight()));
+        int[] target = new int[width * height];
+
+        // baked white, the sprite from Text.toSprite() is tinted with the text colour;
+        // multicolor letters keep their own colours
+        new SoftwareRasterizer(target, width, this).drawText(text, 0xFFFFFF, 1f, 0f, 0f, 1f, 0f, 0f, 1f, 0, 0, width, height);
+
+        Texture texture = register(target, width, height);
+        D2D2.textureManager().addTextureClip("_texture_text_" + texture.getId(), texture.createTextureClip());
+        return texture;
+    }
+
+    @Override
+    public Texture containerToTexture(SimpleContainer container) {
+        float originX = container.getBoundsMinX();
+        float originY = container.getBoundsMinY();
+        int width = Math.max(1, (int) Math.ceil(container.getBoundsMaxX() - originX));
+        int height = Math.max(1, (int) Math.ceil(container.getBoundsMaxY() - originY));
+        int[] target = new int[width * height];
+
+        RenderList renderList = new RenderList();
+        new RenderListBuilder().build(container, originX, originY, width, height, renderList);
+
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer(target, width, this);
+        for (int position = 0; position < renderList.size(); position++) {
+            rasterizer.drawCommand(renderList, renderList.getOrder(position), 0, 0, width, height);
+        }
+
+        return register(target, width, height);
+    }
+
+    /**
+     * @return pixels of the texture, or null if it is not loaded
+     */
+    public Pixels getPixels(int textureId) {
+        return pixels.get(textureId);
+    }
+
+    private synchronized Texture register(int[] argb, int width, int height) {
+        textureIdCounter++;
+        pixels.put(textureIdCounter, new Pixels(argb, width, height));
+        return new Texture(textureIdCounter, width, height);
+    }
+}
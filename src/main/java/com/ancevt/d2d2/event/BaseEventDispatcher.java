@@ -27,19 +27,19 @@ import java.util.concurrent.CopyOnWriteArrayList;
 @NoArgsConstructor
 public class BaseEventDispatcher implements EventDispatcher {
 
-    private final Map<String, List<EventListener>> map = new HashMap<>();
+    // both maps are allocated on first use, most display objects never get a listener
+    private Map<String, List<EventListener>> map;
 
     /**
      * ref to 'map'
      * key : type
      */
-    private final Map<Object, TypeAndListener> keysTypeListenerMap = new HashMap<>();
+    private Map<Object, TypeAndListener> keysTypeListenerMap;
 
     @Override
     public void addEventListener(String type, EventListener listener) {
-        List<EventListener> listeners = map.getOrDefault(type, createList());
-        listeners.add(listener);
-        map.put(type, listeners);
+        if (map == null) map = new HashMap<>(4);
+        map.computeIfAbsent(type, t -> createList()).add(listener);
     }
 
     @Override
@@ -49,6 +49,7 @@ public class BaseEventDispatcher implements EventDispatcher {
 
     @Override
     public void removeEventListener(String type, EventListener listener) {
+        if (map == null) return;
         List<EventListener> listeners = map.get(type);
         if (listeners != null) {
             listeners.remove(listener);
@@ -57,9 +58,10 @@ public class BaseEventDispatcher implements EventDispatcher {
 
     @Override
     public void dispatchEvent(Event event) {
-        List<EventListener> listeners = map.get(event.getType());
         event.setSource(this);
+        if (map == null) return;
 
+        List<EventListener> listeners = map.get(event.getType());
         if (listeners != null) {
             listeners.forEach(e -> e.onEvent(event));
         }
@@ -70,14 +72,21 @@ public class BaseEventDispatcher implements EventDispatcher {
         internalRemoveEventListenerByKey(key.hashCode() + type);
     }
 
+    public boolean hasEventListener(String type) {
+        if (map == null) return false;
+        List<EventListener> listeners = map.get(type);
+        return listeners != null && !listeners.isEmpty();
+    }
+
     @Override
     public void removeAllEventListeners(String type) {
-        map.remove(type);
+        if (map != null) map.remove(type);
     }
 
     @Override
     public void removeAllEventListeners() {
-        map.clear();
+        map = null;
+        keysTypeListenerMap = null;
     }
 
     private List<EventListener> createList() {
@@ -86,10 +95,12 @@ public class BaseEventDispatcher implements EventDispatcher {
 
     private void internalAddEventListenerByKey(Object key, String type, EventListener listener) {
         addEventListener(type, listener);
+        if (keysTypeListenerMap == null) keysTypeListenerMap = new HashMap<>(4);
         keysTypeListenerMap.put(key, new TypeAndListener(type, listener));
     }
 
     private void internalRemoveEventListenerByKey(Object key) {
+        if (keysTypeListenerMap == null) return;
         TypeAndListener typeAndListener = keysTypeListenerMap.remove(key);
         if (typeAndListener != null) {
             removeEventListener(typeAndListener.type, typeAndListener.listener);
@@ -32,7 +32,13 @@ public class TextureUrlLoaderEvent extends Event {
     public static final String TEXTURE_LOAD_START = "textureLoadStart";
     public static final String TEXTURE_LOAD_ERROR = "textureLoadError";
 
+    /**
+     * @deprecated no longer filled, loaded textures are shared through
+     * {@link com.ancevt.d2d2.display.texture.TextureHttpCache}, which does not keep the downloaded bytes
+     */
+    @Deprecated
     private final byte[] bytes;
     private final Texture texture;
+    private final Throwable error;
 
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.input;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Input log layout:
+ * <pre>
+ * header: int MAGIC, byte VERSION
+ * record: varint ticks since previous record, byte type, payload
+ *   TOUCH:  zigzag x, zigzag y, varint pointer, zigzag mouse button, byte flags
+ *   MOVE:   zigzag x, zigzag y, varint pointer, byte flags
+ *   KEY_*:  varint key code, varint character, varint codepoint, byte flags, [KEY_TYPE: string key type]
+ *   WHEEL:  zigzag delta, zigzag x, zigzag y, byte flags
+ *   END:    no payload, its tick is the length of the session
+ * </pre>
+ * Strings are varint (UTF-8 length + 1) with 0 for null.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class InputLog {
+
+    static final int MAGIC = 0x44324952;
+    static final byte VERSION = 1;
+
+    static final byte END = 0;
+    static final byte TOUCH = 1;
+    static final byte MOVE = 2;
+    static final byte KEY_DOWN = 3;
+    static final byte KEY_REPEAT = 4;
+    static final byte KEY_UP = 5;
+    static final byte KEY_TYPE = 6;
+    static final byte WHEEL = 7;
+
+    static final int SHIFT = 1;
+    static final int CONTROL = 1 << 1;
+    static final int ALT = 1 << 2;
+    static final int DOWN = 1 << 3;
+
+    static int flags(boolean shift, boolean control, boolean alt) {
+        return (shift ? SHIFT : 0) | (control ? CONTROL : 0) | (alt ? ALT : 0);
+    }
+
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static void putSigned(ByteBuffer buffer, int value) {
+        putVarint(buffer, (value << 1) ^ (value >> 31));
+    }
+
+    static int getSigned(ByteBuffer buffer) {
+        int value = getVarint(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void putString(ByteBuffer buffer, byte[] utf8) {
+        if (utf8 == null) {
+            putVarint(buffer, 0);
+        } else {
+            putVarint(buffer, utf8.length + 1);
+            buffer.put(utf8);
+        }
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = getVarint(buffer) - 1;
+        if (length < 0) return null;
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
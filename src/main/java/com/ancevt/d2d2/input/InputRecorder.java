@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.input;
+
+import com.ancevt.d2d2.display.Stage;
+import com.ancevt.d2d2.display.interactive.InteractiveManager;
+import com.ancevt.d2d2.event.Event;
+import com.ancevt.d2d2.event.InteractiveEvent;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records every input entry point (screen touches and moves from {@link InteractiveManager},
+ * key and wheel events of the stage) with the frame it happened in, into a memory-mapped
+ * file in {@link InputLog} format. Play the file back with {@link InputReplayer}.
+ */
+public class InputRecorder implements Closeable {
+
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int RECORD_RESERVE = 64;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long bufferOffset;
+
+    private Stage stage;
+
+    @Getter
+    private int tick;
+    private int lastRecordTick;
+
+    public InputRecorder(Path file) throws IOException {
+        channel = FileChannel.open(file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, CHUNK_SIZE);
+        buffer.putInt(InputLog.MAGIC);
+        buffer.put(InputLog.VERSION);
+    }
+
+    public void start(Stage stage) {
+        this.stage = stage;
+
+        stage.addEventListener(this, Event.ENTER_FRAME, event -> tick++);
+        stage.addEventListener(this, InteractiveEvent.KEY_DOWN, event -> recordKey(InputLog.KEY_DOWN, (InteractiveEvent) event));
+        stage.addEventListener(this, InteractiveEvent.KEY_REPEAT, event -> recordKey(InputLog.KEY_REPEAT, (InteractiveEvent) event));
+        stage.addEventListener(this, InteractiveEvent.KEY_UP, event -> recordKey(InputLog.KEY_UP, (InteractiveEvent) event));
+        stage.addEventListener(this, InteractiveEvent.KEY_TYPE, event -> recordKey(InputLog.KEY_TYPE, (InteractiveEvent) event));
+        stage.addEventListener(this, InteractiveEvent.WHEEL, event -> recordWheel((InteractiveEvent) event));
+
+        InteractiveManager.getInstance().setInputRecorder(this);
+    }
+
+    public void stop() {
+        if (stage == null) return;
+
+        stage.removeEventListener(this, Event.ENTER_FRAME);
+        stage.removeEventListener(this, InteractiveEvent.KEY_DOWN);
+        stage.removeEventListener(this, InteractiveEvent.KEY_REPEAT);
+        stage.removeEventListener(this, InteractiveEvent.KEY_UP);
+        stage.removeEventListener(this, InteractiveEvent.KEY_TYPE);
+        stage.removeEventListener(this, InteractiveEvent.WHEEL);
+
+        if (InteractiveManager.getInstance().getInputRecorder() == this) {
+            InteractiveManager.getInstance().setInputRecorder(null);
+        }
+        stage = null;
+    }
+
+    public void recordTouch(int x, int y, int pointer, int mouseButton, boolean down, boolean shift, boolean control, boolean alt) {
+        begin(InputLog.TOUCH, RECORD_RESERVE);
+        InputLog.putSigned(buffer, x);
+        InputLog.putSigned(buffer, y);
+        InputLog.putVarint(buffer, pointer);
+        InputLog.putSigned(buffer, mouseButton);
+        buffer.put((byte) (InputLog.flags(shift, control, alt) | (down ? InputLog.DOWN : 0)));
+    }
+
+    public void recordMove(int pointer, int x, int y, boolean shift, boolean control, boolean alt) {
+        begin(InputLog.MOVE, RECORD_RESERVE);
+        InputLog.putSigned(buffer, x);
+        InputLog.putSigned(buffer, y);
+        InputLog.putVarint(buffer, pointer);
+        buffer.put((byte) InputLog.flags(shift, control, alt));
+    }
+
+    private void recordKey(byte type, InteractiveEvent event) {
+        byte[] keyType = type == InputLog.KEY_TYPE && event.getKeyType() != null
+            ? event.getKeyType().getBytes(StandardCharsets.UTF_8)
+            : null;
+
+        begin(type, RECORD_RESERVE + (keyType == null ? 0 : keyType.length));
+        InputLog.putVarint(buffer, event.getKeyCode());
+        InputLog.putVarint(buffer, event.getCharacter());
+        InputLog.putVarint(buffer, event.getCodepoint());
+        buffer.put((byte) InputLog.flags(event.isShift(), event.isControl(), event.isAlt()));
+        if (type == InputLog.KEY_TYPE) InputLog.putString(buffer, keyType);
+    }
+
+    private void recordWheel(InteractiveEvent event) {
+        begin(InputLog.WHEEL, RECORD_RESERVE);
+        InputLog.putSigned(buffer, event.getDelta());
+        InputLog.putSigned(buffer, event.getX());
+        InputLog.putSigned(buffer, event.getY());
+        buffer.put((byte) InputLog.flags(event.isShift(), event.isControl(), event.isAlt()));
+    }
+
+    private void begin(byte type, int size) {
+        if (buffer.remaining() < size) {
+            try {
+                bufferOffset += buffer.position();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, bufferOffset, Math.max(CHUNK_SIZE, size));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        InputLog.putVarint(buffer, tick - lastRecordTick);
+        buffer.put(type);
+        lastRecordTick = tick;
+    }
+
+    /**
+     * Stops recording, writes the session length and trims the file to the recorded size
+     */
+    @Override
+    public void close() throws IOException {
+        stop();
+        begin(InputLog.END, RECORD_RESERVE);
+
+        long size = bufferOffset + buffer.position();
+        buffer.force();
+        buffer = null;
+
+        try {
+            channel.truncate(size);
+        } catch (IOException e) {
+            // some platforms refuse to truncate a mapped file, the END record still ends the log
+        }
+        channel.close();
+    }
+}
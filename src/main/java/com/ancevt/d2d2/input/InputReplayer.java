@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.input;
+
+import com.ancevt.d2d2.display.Stage;
+import com.ancevt.d2d2.display.interactive.InteractiveManager;
+import com.ancevt.d2d2.engine.Engine;
+import com.ancevt.d2d2.event.InteractiveEvent;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Plays an {@link InputRecorder} log back into an engine, delivering each input before the
+ * frame that followed it in the recording. Frames are run with {@link Engine#step(int)},
+ * so a headless engine replays a session as fast as it can simulate it.
+ */
+public class InputReplayer {
+
+    private final MappedByteBuffer buffer;
+
+    @Getter
+    private int tick;
+    private int nextRecordTick;
+    private byte nextType;
+    private boolean finished;
+
+    public InputReplayer(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.remaining() < 5 || buffer.getInt() != InputLog.MAGIC) {
+            throw new IOException("Not an input log: " + file);
+        }
+        byte version = buffer.get();
+        if (version != InputLog.VERSION) {
+            throw new IOException("Unsupported input log version " + version);
+        }
+
+        readRecordHeader();
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Replays the whole session
+     *
+     * @return number of frames run
+     */
+    public int replay(Engine engine) {
+        int start = tick;
+        while (!finished) {
+            step(engine);
+        }
+        return tick - start;
+    }
+
+    /**
+     * Delivers the inputs of the current frame and runs it
+     */
+    public void step(Engine engine) {
+        if (finished) return;
+
+        while (nextRecordTick == tick && nextType != InputLog.END) {
+            deliver(engine.stage());
+            readRecordHeader();
+        }
+
+        if (nextType == InputLog.END && nextRecordTick <= tick) {
+            finished = true;
+            return;
+        }
+
+        engine.step(1);
+        tick++;
+    }
+
+    private void readRecordHeader() {
+        if (!buffer.hasRemaining()) {
+            nextType = InputLog.END;
+            return;
+        }
+        nextRecordTick += InputLog.getVarint(buffer);
+        nextType = buffer.get();
+    }
+
+    private void deliver(Stage stage) {
+        switch (nextType) {
+            case InputLog.TOUCH -> {
+                int x = InputLog.getSigned(buffer);
+                int y = InputLog.getSigned(buffer);
+                int pointer = InputLog.getVarint(buffer);
+                int mouseButton = InputLog.getSigned(buffer);
+                int flags = buffer.get();
+                InteractiveManager.getInstance().screenTouch(x, y, pointer, mouseButton,
+                    (flags & InputLog.DOWN) != 0,
+                    (flags & InputLog.SHIFT) != 0,
+                    (flags & InputLog.CONTROL) != 0,
+                    (flags & InputLog.ALT) != 0);
+            }
+            case InputLog.MOVE -> {
+                int x = InputLog.getSigned(buffer);
+                int y = InputLog.getSigned(buffer);
+                int pointer = InputLog.getVarint(buffer);
+                int flags = buffer.get();
+                Mouse.setXY(x, y);
+                InteractiveManager.getInstance().screenMove(pointer, x, y,
+                    (flags & InputLog.SHIFT) != 0,
+                    (flags & InputLog.CONTROL) != 0,
+                    (flags & InputLog.ALT) != 0);
+            }
+            case InputLog.KEY_DOWN, InputLog.KEY_REPEAT, InputLog.KEY_UP, InputLog.KEY_TYPE -> {
+                byte type = nextType;
+                int keyCode = InputLog.getVarint(buffer);
+                char character = (char) InputLog.getVarint(buffer);
+                int codepoint = InputLog.getVarint(buffer);
+                int flags = buffer.get();
+                String keyType = type == InputLog.KEY_TYPE ? InputLog.getString(buffer) : null;
+
+                stage.dispatchEvent(InteractiveEvent.builder()
+                    .type(switch (type) {
+                        case InputLog.KEY_DOWN -> InteractiveEvent.KEY_DOWN;
+                        case InputLog.KEY_REPEAT -> InteractiveEvent.KEY_REPEAT;
+                        case InputLog.KEY_UP -> InteractiveEvent.KEY_UP;
+                        default -> InteractiveEvent.KEY_TYPE;
+                    })
+                    .keyCode(keyCode)
+                    .character(character)
+                    .codepoint(codepoint)
+                    .keyType(keyType)
+                    .shift((flags & InputLog.SHIFT) != 0)
+                    .control((flags & InputLog.CONTROL) != 0)
+                    .alt((flags & InputLog.ALT) != 0)
+                    .build());
+            }
+            case InputLog.WHEEL -> {
+                int delta = InputLog.getSigned(buffer);
+                int x = InputLog.getSigned(buffer);
+                int y = InputLog.getSigned(buffer);
+                int flags = buffer.get();
+
+                stage.dispatchEvent(InteractiveEvent.builder()
+                    .type(InteractiveEvent.WHEEL)
+                    .delta(delta)
+                    .x(x)
+                    .y(y)
+                    .shift((flags & InputLog.SHIFT) != 0)
+                    .control((flags & InputLog.CONTROL) != 0)
+                    .alt((flags & InputLog.ALT) != 0)
+                    .build());
+            }
+            default -> throw new IllegalStateException("Corrupted input log, record type " + nextType);
+        }
+    }
+}
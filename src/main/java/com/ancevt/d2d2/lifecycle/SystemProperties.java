@@ -23,5 +23,6 @@ public class SystemProperties {
     public static final String D2D2_WINDOW_TITLE = "d2d2.window.title";
     public static final String D2D2_WINDOW_WIDTH = "d2d2.window.width";
     public static final String D2D2_WINDOW_HEIGHT = "d2d2.window.height";
+    public static final String D2D2_TEXTURE_CACHE_DIR = "d2d2.texture.cache.dir";
     public static final String GLFW_HINT_ALWAYSONTOP = "glfw.hint.alwaysontop";
 }
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.render;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Headless backend that draws nothing and remembers what it was asked to draw,
+ * for tests and for measuring batching on machines without a GPU.
+ */
+public class RecordingRenderBackend implements RenderBackend {
+
+    @Getter
+    private long frameCount;
+    @Getter
+    private int lastCommandCount;
+    @Getter
+    private int lastBatchCount;
+
+    private int[] lastTextureIds = new int[0];
+    private int[] lastZ = new int[0];
+
+    @Override
+    public void init(long windowId) {
+
+    }
+
+    @Override
+    public void reshape() {
+
+    }
+
+    @Override
+    public void render(RenderList renderList) {
+        frameCount++;
+        lastCommandCount = renderList.size();
+        lastBatchCount = renderList.getBatchCount();
+
+        if (lastTextureIds.length < lastCommandCount) {
+            lastTextureIds = new int[lastCommandCount];
+            lastZ = new int[lastCommandCount];
+        }
+        for (int position = 0; position < lastCommandCount; position++) {
+            int i = renderList.getOrder(position);
+            lastTextureIds[position] = renderList.getTextureId(i);
+            lastZ[position] = renderList.getZ(i);
+        }
+    }
+
+    /**
+     * @return texture ids of the last frame in draw order
+     */
+    public int[] getLastTextureIds() {
+        return Arrays.copyOf(lastTextureIds, lastCommandCount);
+    }
+
+    /**
+     * @return tree order positions of the last frame's commands in draw order
+     */
+    public int[] getLastZ() {
+        return Arrays.copyOf(lastZ, lastCommandCount);
+    }
+}
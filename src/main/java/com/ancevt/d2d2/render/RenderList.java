@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.render;
+
+import com.ancevt.d2d2.display.DisplayObject;
+
+import java.util.Arrays;
+
+/**
+ * Reusable per-frame list of draw commands in structure-of-arrays layout, filled by
+ * {@link RenderListBuilder} and consumed by a {@link RenderBackend}.
+ * <p>
+ * A {@link #QUAD} command draws the rectangle {@code (0, 0)-(width, height)} mapped to the screen by
+ * the affine transform {@code x' = a * x + c * y + tx, y' = b * x + d * y + ty}, textured with the clip
+ * rectangle of the texture, or filled with the colour when the texture id is {@link #NO_TEXTURE}.
+ * An {@link #OBJECT} command is a display object the builder cannot flatten (free shapes, line batches,
+ * uncached text); the backend draws it itself with the command's transform, colour and alpha.
+ * <p>
+ * Commands are stored in tree order. Backends draw them in {@link #getOrder(int) draw order}, grouped
+ * into batches of consecutive commands with the same texture.
+ */
+public final class RenderList {
+
+    public static final int QUAD = 0;
+    public static final int OBJECT = 1;
+
+    public static final int NO_TEXTURE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    int size;
+
+    byte[] kind = new byte[INITIAL_CAPACITY];
+    float[] a = new float[INITIAL_CAPACITY];
+    float[] b = new float[INITIAL_CAPACITY];
+    float[] c = new float[INITIAL_CAPACITY];
+    float[] d = new float[INITIAL_CAPACITY];
+    float[] tx = new float[INITIAL_CAPACITY];
+    float[] ty = new float[INITIAL_CAPACITY];
+    float[] width = new float[INITIAL_CAPACITY];
+    float[] height = new float[INITIAL_CAPACITY];
+    int[] textureId = new int[INITIAL_CAPACITY];
+    int[] clipX = new int[INITIAL_CAPACITY];
+    int[] clipY = new int[INITIAL_CAPACITY];
+    int[] clipWidth = new int[INITIAL_CAPACITY];
+    int[] clipHeight = new int[INITIAL_CAPACITY];
+    int[] color = new int[INITIAL_CAPACITY];
+    float[] alpha = new float[INITIAL_CAPACITY];
+    int[] z = new int[INITIAL_CAPACITY];
+    DisplayObject[] object = new DisplayObject[INITIAL_CAPACITY];
+
+    // screen bounds, used for culling and for the overlap test of batching
+    float[] minX = new float[INITIAL_CAPACITY];
+    float[] minY = new float[INITIAL_CAPACITY];
+    float[] maxX = new float[INITIAL_CAPACITY];
+    float[] maxY = new float[INITIAL_CAPACITY];
+
+    int[] order = new int[INITIAL_CAPACITY];
+
+    int batchCount;
+    int[] batchStart = new int[INITIAL_CAPACITY];
+    int[] batchLength = new int[INITIAL_CAPACITY];
+
+    public int size() {
+        return size;
+    }
+
+    public int getKind(int i) {
+        return kind[i];
+    }
+
+    public float getA(int i) {
+        return a[i];
+    }
+
+    public float getB(int i) {
+        return b[i];
+    }
+
+    public float getC(int i) {
+        return c[i];
+    }
+
+    public float getD(int i) {
+        return d[i];
+    }
+
+    public float getTx(int i) {
+        return tx[i];
+    }
+
+    public float getTy(int i) {
+        return ty[i];
+    }
+
+    public float getWidth(int i) {
+        return width[i];
+    }
+
+    public float getHeight(int i) {
+        return height[i];
+    }
+
+    public int getTextureId(int i) {
+        return textureId[i];
+    }
+
+    public int getClipX(int i) {
+        return clipX[i];
+    }
+
+    public int getClipY(int i) {
+        return clipY[i];
+    }
+
+    public int getClipWidth(int i) {
+        return clipWidth[i];
+    }
+
+    public int getClipHeight(int i) {
+        return clipHeight[i];
+    }
+
+    /**
+     * @return colour packed as 0xRRGGBB
+     */
+    public int getColor(int i) {
+        return color[i];
+    }
+
+    public float getAlpha(int i) {
+        return alpha[i];
+    }
+
+    /**
+     * @return position of the command in tree order, larger is drawn over smaller where they overlap
+     */
+    public int getZ(int i) {
+        return z[i];
+    }
+
+    public DisplayObject getObject(int i) {
+        return object[i];
+    }
+
+    /**
+     * Screen bounds of the command, infinite for objects of unknown extent
+     */
+    public float getMinX(int i) {
+        return minX[i];
+    }
+
+    public float getMinY(int i) {
+        return minY[i];
+    }
+
+    public float getMaxX(int i) {
+        return maxX[i];
+    }
+
+    public float getMaxY(int i) {
+        return maxY[i];
+    }
+
+    /**
+     * @param position position in draw order, {@code 0 until size()}
+     * @return index of the command drawn at that position
+     */
+    public int getOrder(int position) {
+        return order[position];
+    }
+
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * @return first draw order position of the batch
+     */
+    public int getBatchStart(int batch) {
+        return batchStart[batch];
+    }
+
+    public int getBatchLength(int batch) {
+        return batchLength[batch];
+    }
+
+    public int getBatchTextureId(int batch) {
+        return textureId[order[batchStart[batch]]];
+    }
+
+    void clear() {
+        Arrays.fill(object, 0, size, null);
+        size = 0;
+        batchCount = 0;
+    }
+
+    int add() {
+        if (size == kind.length) grow();
+        return size++;
+    }
+
+    void addBatch(int start, int length) {
+        if (batchCount == batchStart.length) {
+            batchStart = Arrays.copyOf(batchStart, batchCount * 2);
+            batchLength = Arrays.copyOf(batchLength, batchCount * 2);
+        }
+        batchStart[batchCount] = start;
+        batchLength[batchCount] = length;
+        batchCount++;
+    }
+
+    private void grow() {
+        int capacity = kind.length * 2;
+        kind = Arrays.copyOf(kind, capacity);
+        a = Arrays.copyOf(a, capacity);
+        b = Arrays.copyOf(b, capacity);
+        c = Arrays.copyOf(c, capacity);
+        d = Arrays.copyOf(d, capacity);
+        tx = Arrays.copyOf(tx, capacity);
+        ty = Arrays.copyOf(ty, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        textureId = Arrays.copyOf(textureId, capacity);
+        clipX = Arrays.copyOf(clipX, capacity);
+        clipY = Arrays.copyOf(clipY, capacity);
+        clipWidth = Arrays.copyOf(clipWidth, capacity);
+        clipHeight = Arrays.copyOf(clipHeight, capacity);
+        color = Arrays.copyOf(color, capacity);
+        alpha = Arrays.copyOf(alpha, capacity);
+        z = Arrays.copyOf(z, capacity);
+        object = Arrays.copyOf(object, capacity);
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        order = Arrays.copyOf(order, capacity);
+    }
+}
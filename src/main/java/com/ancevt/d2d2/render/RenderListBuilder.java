@@ -0,0 +1,478 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.render;
+
+import com.ancevt.d2d2.display.Color;
+import com.ancevt.d2d2.display.Colored;
+import com.ancevt.d2d2.display.Container;
+import com.ancevt.d2d2.display.DisplayObject;
+import com.ancevt.d2d2.display.ParticleEmitter;
+import com.ancevt.d2d2.display.SimpleContainer;
+import com.ancevt.d2d2.display.SimpleSprite;
+import com.ancevt.d2d2.display.SpriteBatch;
+import com.ancevt.d2d2.display.Sprite;
+import com.ancevt.d2d2.display.Stage;
+import com.ancevt.d2d2.display.TileMap;
+import com.ancevt.d2d2.display.shape.RectangleShape;
+import com.ancevt.d2d2.display.text.Text;
+import com.ancevt.d2d2.display.texture.TextureClip;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Arrays;
+
+/**
+ * Flattens a display tree into a {@link RenderList}: one traversal computes world transforms and
+ * alpha, drops commands outside the viewport and then reorders commands to group equal textures.
+ * <p>
+ * Reordering never changes the picture: a command is moved in front of earlier commands only if
+ * its screen bounds overlap none of them. The search looks at most {@link #getBatchWindow()}
+ * commands ahead, and {@link RenderList#OBJECT} commands are never crossed.
+ */
+public class RenderListBuilder {
+
+    private static final int WHITE = 0xFFFFFF;
+
+    /**
+     * How many pending commands are searched for the current texture, 0 keeps tree order
+     */
+    @Getter
+    @Setter
+    private int batchWindow = 32;
+
+    @Getter
+    @Setter
+    private boolean cullingEnabled = true;
+
+    private float viewportX;
+    private float viewportY;
+    private float viewportWidth = -1f;
+    private float viewportHeight = -1f;
+
+    private RenderList list;
+    private int zCounter;
+    private float left;
+    private float top;
+    private float right;
+    private float bottom;
+
+    // composed transform of the quad being added
+    private float qa;
+    private float qb;
+    private float qc;
+    private float qd;
+    private float qtx;
+    private float qty;
+
+    private boolean[] placed = new boolean[0];
+    private int[] skipped = new int[0];
+
+    /**
+     * Limits drawing to the rectangle in stage coordinates, by default the whole stage is visible
+     */
+    public void setViewport(float x, float y, float width, float height) {
+        viewportX = x;
+        viewportY = y;
+        viewportWidth = width;
+        viewportHeight = height;
+    }
+
+    public void resetViewport() {
+        viewportWidth = -1f;
+        viewportHeight = -1f;
+    }
+
+    public void build(Stage stage, RenderList renderList) {
+        // the stage itself is the background the backend clears with
+        build(stage, 0f, 0f, viewportX, viewportY,
+            viewportWidth < 0f ? stage.getWidth() : viewportWidth,
+            viewportHeight < 0f ? stage.getHeight() : viewportHeight,
+            renderList);
+    }
+
+    /**
+     * Flattens the children of the root, ignoring the root's own transform, with the point
+     * {@code (originX, originY)} of the root's space placed at the target's top left corner.
+     * Used for offscreen rendering, e.g. {@link SimpleContainer#setCacheAsTexture(boolean)}.
+     */
+    public void build(Container root, float originX, float originY, float width, float height, RenderList renderList) {
+        build(root, -originX, -originY, 0f, 0f, width, height, renderList);
+    }
+
+    private void build(Container root, float offsetX, float offsetY,
+                       float x, float y, float width, float height, RenderList renderList) {
+        list = renderList;
+        list.clear();
+        zCounter = 0;
+
+        left = x;
+        top = y;
+        right = x + width;
+        bottom = y + height;
+
+        for (int i = 0; i < root.getNumChildren(); i++) {
+            visit(root.getChild(i), 1f, 0f, 0f, 1f, offsetX, offsetY, 1f);
+        }
+
+        batch();
+        list = null;
+    }
+
+    private void visit(DisplayObject displayObject,
+                       float a, float b, float c, float d, float tx, float ty, float parentAlpha) {
+        if (!displayObject.isVisible()) return;
+
+        float alpha = parentAlpha * displayObject.getAlpha();
+        if (alpha <= 0f) return;
+
+        compose(a, b, c, d, tx, ty,
+            displayObject.getX(), displayObject.getY(),
+            displayObject.getScaleX(), displayObject.getScaleY(), displayObject.getRotation());
+        float wa = qa;
+        float wb = qb;
+        float wc = qc;
+        float wd = qd;
+        float wtx = qtx;
+        float wty = qty;
+
+        if (displayObject instanceof SimpleContainer container) {
+            if (cullingEnabled && container.hasFiniteBounds() && isOutside(
+                container.getBoundsMinX(), container.getBoundsMinY(),
+                container.getBoundsMaxX(), container.getBoundsMaxY(),
+                wa, wb, wc, wd, wtx, wty)) {
+                return;
+            }
+
+            // without a cached sprite the children are drawn directly
+            SimpleSprite cached = container.isCacheAsTexture() ? container.cachedSprite() : null;
+            if (cached != null) {
+                offset(wa, wb, wc, wd, wtx, wty, cached.getX(), cached.getY());
+                addQuad(cached.getTextureClip(), 1f, 1f, WHITE, alpha);
+                return;
+            }
+        }
+
+        if (displayObject instanceof Sprite sprite) {
+            TextureClip clip = sprite.getTextureClip();
+            if (clip != null) {
+                set(wa, wb, wc, wd, wtx, wty);
+                addQuad(clip, sprite.getRepeatX(), sprite.getRepeatY(), colorOf(sprite), alpha);
+            }
+        } else if (displayObject instanceof RectangleShape rectangle) {
+            set(wa, wb, wc, wd, wtx, wty);
+            addFill(rectangle.getWidth(), rectangle.getHeight(), colorOf(rectangle), alpha);
+        } else if (displayObject instanceof Text text && text.isCacheAsSprite() && text.cachedSprite() != null) {
+            set(wa, wb, wc, wd, wtx, wty);
+            // multicolor letters are baked into the cached texture, plain text is baked white and tinted here
+            SimpleSprite cached = text.cachedSprite();
+            addQuad(cached.getTextureClip(), 1f, 1f, text.isMulticolor() ? WHITE : colorOf(cached), alpha);
+        } else if (displayObject instanceof ParticleEmitter emitter) {
+            addParticles(emitter, wa, wb, wc, wd, wtx, wty, alpha);
+        } else if (displayObject instanceof SpriteBatch batch) {
+            addInstances(batch, wa, wb, wc, wd, wtx, wty, alpha);
+        } else if (displayObject instanceof TileMap tileMap) {
+            addTiles(tileMap, wa, wb, wc, wd, wtx, wty, alpha);
+        } else if (!(displayObject instanceof Container)) {
+            set(wa, wb, wc, wd, wtx, wty);
+            addObject(displayObject, alpha);
+        }
+
+        if (displayObject instanceof Container container) {
+            for (int i = 0; i < container.getNumChildren(); i++) {
+                visit(container.getChild(i), wa, wb, wc, wd, wtx, wty, alpha);
+            }
+        }
+    }
+
+    private void addParticles(ParticleEmitter emitter,
+                              float a, float b, float c, float d, float tx, float ty, float alpha) {
+        TextureClip clip = emitter.getTextureClip();
+        if (clip == null) return;
+
+        int color = emitter.getColorValue();
+        float halfWidth = clip.getWidth() / 2f;
+        float halfHeight = clip.getHeight() / 2f;
+
+        for (int i = 0; i < emitter.getSlotCount(); i++) {
+            if (!emitter.isAlive(i)) continue;
+            float scale = emitter.getParticleScale(i);
+            compose(a, b, c, d, tx, ty,
+                emitter.getParticleX(i), emitter.getParticleY(i), scale, scale, emitter.getParticleRotation(i));
+            offset(qa, qb, qc, qd, qtx, qty, -halfWidth, -halfHeight);
+            addQuad(clip, 1f, 1f, color, alpha * emitter.getParticleAlpha(i));
+        }
+    }
+
+    private void addInstances(SpriteBatch batch,
+                              float a, float b, float c, float d, float tx, float ty, float alpha) {
+        for (int i = 0; i < batch.getInstanceCount(); i++) {
+            TextureClip clip = batch.getInstanceClip(i);
+            if (clip == null) continue;
+            compose(a, b, c, d, tx, ty,
+                batch.getInstanceX(i), batch.getInstanceY(i),
+                batch.getInstanceScaleX(i), batch.getInstanceScaleY(i), batch.getInstanceRotation(i));
+            addQuad(clip, 1f, 1f, batch.getInstanceColor(i), alpha * batch.getInstanceAlpha(i));
+        }
+    }
+
+    private void addTiles(TileMap tileMap,
+                          float a, float b, float c, float d, float tx, float ty, float alpha) {
+        float determinant = a * d - b * c;
+        if (determinant == 0f) return;
+
+        // viewport corners in the map's local space
+        float localLeft = Float.POSITIVE_INFINITY;
+        float localTop = Float.POSITIVE_INFINITY;
+        float localRight = Float.NEGATIVE_INFINITY;
+        float localBottom = Float.NEGATIVE_INFINITY;
+        for (int corner = 0; corner < 4; corner++) {
+            float px = ((corner & 1) == 0 ? left : right) - tx;
+            float py = ((corner & 2) == 0 ? top : bottom) - ty;
+            float lx = (d * px - c * py) / determinant;
+            float ly = (a * py - b * px) / determinant;
+            localLeft = Math.min(localLeft, lx);
+            localTop = Math.min(localTop, ly);
+            localRight = Math.max(localRight, lx);
+            localBottom = Math.max(localBottom, ly);
+        }
+
+        int tileWidth = tileMap.getTileWidth();
+        int tileHeight = tileMap.getTileHeight();
+        int size = TileMap.CHUNK_SIZE;
+
+        tileMap.forEachChunk(localLeft, localTop, localRight, localBottom, (chunkX, chunkY, tiles, dirty) -> {
+            for (int cell = 0; cell < tiles.length; cell++) {
+                int id = tiles[cell] & 0xFFFF;
+                if (id == TileMap.EMPTY) continue;
+
+                int column = chunkX * size + cell % size;
+                int row = chunkY * size + cell / size;
+                if (column >= tileMap.getColumns() || row >= tileMap.getRows()) continue;
+
+                offset(a, b, c, d, tx, ty, (float) column * tileWidth, (float) row * tileHeight);
+                addQuad(tileMap.getTileClip(id), 1f, 1f, WHITE, alpha);
+            }
+        });
+    }
+
+    private void addQuad(TextureClip clip, float repeatX, float repeatY, int color, float alpha) {
+        float width = clip.getWidth() * repeatX;
+        float height = clip.getHeight() * repeatY;
+        int i = addCommand(RenderList.QUAD, width, height, color, alpha);
+        if (i < 0) return;
+
+        list.textureId[i] = clip.getTexture().getId();
+        list.clipX[i] = clip.getX();
+        list.clipY[i] = clip.getY();
+        list.clipWidth[i] = clip.getWidth();
+        list.clipHeight[i] = clip.getHeight();
+    }
+
+    private void addFill(float width, float height, int color, float alpha) {
+        int i = addCommand(RenderList.QUAD, width, height, color, alpha);
+        if (i < 0) return;
+
+        list.textureId[i] = RenderList.NO_TEXTURE;
+        list.clipX[i] = 0;
+        list.clipY[i] = 0;
+        list.clipWidth[i] = 0;
+        list.clipHeight[i] = 0;
+    }
+
+    private void addObject(DisplayObject displayObject, float alpha) {
+        int i = addCommand(RenderList.OBJECT, displayObject.getWidth(), displayObject.getHeight(),
+            displayObject instanceof Colored colored ? colorOf(colored) : WHITE, alpha);
+        if (i < 0) return;
+
+        list.textureId[i] = RenderList.NO_TEXTURE;
+        list.object[i] = displayObject;
+    }
+
+    /**
+     * Adds a command with the current quad transform
+     *
+     * @return index of the command, or -1 if it was culled
+     */
+    private int addCommand(int kind, float width, float height, int color, float alpha) {
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+
+        if (kind == RenderList.OBJECT && width == 0f && height == 0f) {
+            // extent unknown, covers everything
+            minX = Float.NEGATIVE_INFINITY;
+            minY = Float.NEGATIVE_INFINITY;
+            maxX = Float.POSITIVE_INFINITY;
+            maxY = Float.POSITIVE_INFINITY;
+        } else {
+            for (int corner = 0; corner < 4; corner++) {
+                float px = (corner & 1) == 0 ? 0f : width;
+                float py = (corner & 2) == 0 ? 0f : height;
+                float x = qa * px + qc * py + qtx;
+                float y = qb * px + qd * py + qty;
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+            if (cullingEnabled && (maxX < left || maxY < top || minX > right || minY > bottom)) return -1;
+        }
+
+        RenderList l = list;
+        int i = l.add();
+        l.kind[i] = (byte) kind;
+        l.a[i] = qa;
+        l.b[i] = qb;
+        l.c[i] = qc;
+        l.d[i] = qd;
+        l.tx[i] = qtx;
+        l.ty[i] = qty;
+        l.width[i] = width;
+        l.height[i] = height;
+        l.color[i] = color;
+        l.alpha[i] = alpha;
+        l.z[i] = zCounter++;
+        l.minX[i] = minX;
+        l.minY[i] = minY;
+        l.maxX[i] = maxX;
+        l.maxY[i] = maxY;
+        return i;
+    }
+
+    /**
+     * Fills the draw order and batches of the list. Greedy: every batch starts at the first command not
+     * drawn yet and takes later commands with the same texture that overlap nothing they would jump over.
+     */
+    private void batch() {
+        RenderList l = list;
+        int size = l.size;
+        if (placed.length < size) {
+            placed = new boolean[l.order.length];
+        } else {
+            Arrays.fill(placed, 0, size, false);
+        }
+        if (skipped.length < batchWindow) skipped = new int[batchWindow];
+
+        int position = 0;
+        for (int first = 0; first < size; first++) {
+            if (placed[first]) continue;
+
+            int texture = l.textureId[first];
+            int start = position;
+            l.order[position++] = first;
+            placed[first] = true;
+
+            if (l.kind[first] == RenderList.QUAD) {
+                int skippedCount = 0;
+                for (int j = first + 1; j < size && skippedCount < batchWindow; j++) {
+                    if (placed[j]) continue;
+                    if (l.kind[j] != RenderList.QUAD) break;
+
+                    if (l.textureId[j] == texture && !overlapsAny(l, j, skippedCount)) {
+                        l.order[position++] = j;
+                        placed[j] = true;
+                    } else {
+                        skipped[skippedCount++] = j;
+                    }
+                }
+            }
+
+            l.addBatch(start, position - start);
+        }
+    }
+
+    private boolean overlapsAny(RenderList l, int j, int skippedCount) {
+        for (int k = 0; k < skippedCount; k++) {
+            int s = skipped[k];
+            if (l.minX[j] < l.maxX[s] && l.maxX[j] > l.minX[s] && l.minY[j] < l.maxY[s] && l.maxY[j] > l.minY[s]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isOutside(float minX, float minY, float maxX, float maxY,
+                              float a, float b, float c, float d, float tx, float ty) {
+        float worldMinX = Float.POSITIVE_INFINITY;
+        float worldMinY = Float.POSITIVE_INFINITY;
+        float worldMaxX = Float.NEGATIVE_INFINITY;
+        float worldMaxY = Float.NEGATIVE_INFINITY;
+        for (int corner = 0; corner < 4; corner++) {
+            float px = (corner & 1) == 0 ? minX : maxX;
+            float py = (corner & 2) == 0 ? minY : maxY;
+            float x = a * px + c * py + tx;
+            float y = b * px + d * py + ty;
+            worldMinX = Math.min(worldMinX, x);
+            worldMaxX = Math.max(worldMaxX, x);
+            worldMinY = Math.min(worldMinY, y);
+            worldMaxY = Math.max(worldMaxY, y);
+        }
+        return worldMaxX < left || worldMaxY < top || worldMinX > right || worldMinY > bottom;
+    }
+
+    /**
+     * Quad transform = parent * translate(x, y) * rotate(rotation) * scale(scaleX, scaleY)
+     */
+    private void compose(float a, float b, float c, float d, float tx, float ty,
+                         float x, float y, float scaleX, float scaleY, float rotation) {
+        float la = scaleX;
+        float lb = 0f;
+        float lc = 0f;
+        float ld = scaleY;
+
+        if (rotation != 0f) {
+            double radians = Math.toRadians(rotation);
+            float cos = (float) Math.cos(radians);
+            float sin = (float) Math.sin(radians);
+            la = cos * scaleX;
+            lb = sin * scaleX;
+            lc = -sin * scaleY;
+            ld = cos * scaleY;
+        }
+
+        qa = a * la + c * lb;
+        qb = b * la + d * lb;
+        qc = a * lc + c * ld;
+        qd = b * lc + d * ld;
+        qtx = a * x + c * y + tx;
+        qty = b * x + d * y + ty;
+    }
+
+    /**
+     * Quad transform = transform * translate(x, y)
+     */
+    private void offset(float a, float b, float c, float d, float tx, float ty, float x, float y) {
+        set(a, b, c, d, a * x + c * y + tx, b * x + d * y + ty);
+    }
+
+    private void set(float a, float b, float c, float d, float tx, float ty) {
+        qa = a;
+        qb = b;
+        qc = c;
+        qd = d;
+        qtx = tx;
+        qty = ty;
+    }
+
+    private static int colorOf(Colored colored) {
+        if (colored instanceof SimpleSprite sprite) return sprite.getColorValue();
+        Color color = colored.getColor();
+        return color == null ? WHITE : color.getValue();
+    }
+}
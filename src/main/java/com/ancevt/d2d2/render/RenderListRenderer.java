@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.render;
+
+import com.ancevt.d2d2.display.Renderer;
+import com.ancevt.d2d2.display.Stage;
+import com.ancevt.d2d2.engine.norender.NoRenderRendererStub;
+import lombok.Getter;
+
+/**
+ * {@link Renderer} that flattens the stage into a {@link RenderList} once per frame and hands
+ * it to a backend, so backends never walk the display tree themselves. Frame hooks, playback and
+ * z-order indices are handled by the {@link NoRenderRendererStub} pass that runs first.
+ */
+public class RenderListRenderer extends NoRenderRendererStub {
+
+    private final Stage stage;
+    @Getter
+    private final RenderBackend backend;
+    @Getter
+    private final RenderListBuilder builder = new RenderListBuilder();
+    private final RenderList renderList = new RenderList();
+
+    public RenderListRenderer(Stage stage, RenderBackend backend) {
+        super(stage);
+        this.stage = stage;
+        this.backend = backend;
+    }
+
+    @Override
+    public void init(long windowId) {
+        backend.init(windowId);
+    }
+
+    @Override
+    public void reshape() {
+        backend.reshape();
+    }
+
+    @Override
+    public void renderFrame() {
+        super.renderFrame();
+        builder.build(stage, renderList);
+        backend.render(renderList);
+    }
+
+    public RenderList getLastRenderList() {
+        return renderList;
+    }
+}
@@ -0,0 +1,381 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.replication;
+
+import com.ancevt.d2d2.display.BaseDisplayObject;
+import com.ancevt.d2d2.display.ChangeTracker;
+import com.ancevt.d2d2.display.Container;
+import com.ancevt.d2d2.display.DisplayObject;
+import com.ancevt.d2d2.event.Event;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interest management for per-client replication. Tracked display objects are bucketed in a
+ * uniform grid by absolute position while they are on stage; each {@link Viewpoint} computes
+ * which of them entered, left or stayed in its area since the previous {@link #update()}
+ * by visiting only the cells it overlaps.
+ * <p>
+ * Only objects that moved, or whose ancestor moved, are re-bucketed. They are found through
+ * {@link ChangeTracker}, so call {@link #update()} before {@link ReplicationEncoder#encode()}
+ * clears it, or clear the tracker after the update when no encoder is used.
+ */
+public class InterestGrid {
+
+    private static final long NO_CELL = Long.MIN_VALUE;
+    private static final int MOVE_FLAGS = ChangeTracker.X | ChangeTracker.Y | ChangeTracker.SCALE_X
+        | ChangeTracker.SCALE_Y | ChangeTracker.ROTATION | ChangeTracker.PARENT;
+
+    @Getter
+    private final float cellSize;
+
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final Map<DisplayObject, Integer> slots = new IdentityHashMap<>();
+    private final List<Viewpoint> viewpoints = new ArrayList<>();
+
+    private DisplayObject[] objects = new DisplayObject[64];
+    private float[] xs = new float[64];
+    private float[] ys = new float[64];
+    private long[] cellKeys = new long[64];
+    private int[] cellIndices = new int[64];
+    private int slotCount;
+
+    private final BitSet moved = new BitSet();
+    private int[] movedSlots = new int[64];
+    private int movedCount;
+
+    // slots are reused only after viewpoints had a chance to report the object as left
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int[] releasedSlots = new int[16];
+    private int releasedCount;
+
+    public InterestGrid(float cellSize) {
+        if (cellSize <= 0f) throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        this.cellSize = cellSize;
+        ChangeTracker.setEnabled(true);
+    }
+
+    /**
+     * Starts tracking the display object, it takes part in the grid while it is on stage
+     */
+    public void add(DisplayObject displayObject) {
+        if (slots.containsKey(displayObject)) return;
+
+        int slot = allocateSlot();
+        objects[slot] = displayObject;
+        cellKeys[slot] = NO_CELL;
+        slots.put(displayObject, slot);
+
+        displayObject.addEventListener(this, Event.ADD_TO_STAGE, event -> place(slot));
+        displayObject.addEventListener(this, Event.REMOVE_FROM_STAGE, event -> unplace(slot));
+
+        if (displayObject.isOnScreen()) place(slot);
+    }
+
+    public void remove(DisplayObject displayObject) {
+        Integer slot = slots.remove(displayObject);
+        if (slot == null) return;
+
+        displayObject.removeEventListener(this, Event.ADD_TO_STAGE);
+        displayObject.removeEventListener(this, Event.REMOVE_FROM_STAGE);
+        unplace(slot);
+
+        if (releasedCount == releasedSlots.length) releasedSlots = Arrays.copyOf(releasedSlots, releasedCount * 2);
+        releasedSlots[releasedCount++] = slot;
+    }
+
+    public boolean contains(DisplayObject displayObject) {
+        return slots.containsKey(displayObject);
+    }
+
+    public Viewpoint createViewpoint(float halfWidth, float halfHeight) {
+        Viewpoint viewpoint = new Viewpoint(halfWidth, halfHeight);
+        viewpoints.add(viewpoint);
+        return viewpoint;
+    }
+
+    public void removeViewpoint(Viewpoint viewpoint) {
+        viewpoints.remove(viewpoint);
+    }
+
+    /**
+     * Re-buckets moved objects and refreshes every viewpoint, call once per tick
+     */
+    public void update() {
+        int size = ChangeTracker.size();
+        for (int i = 0; i < size; i++) {
+            BaseDisplayObject changed = ChangeTracker.get(i);
+            if ((changed.getChangeFlags() & MOVE_FLAGS) != 0) markMoved(changed);
+        }
+
+        for (int i = 0; i < movedCount; i++) {
+            int slot = movedSlots[i];
+            moved.clear(slot);
+            if (cellKeys[slot] == NO_CELL) continue;
+
+            DisplayObject displayObject = objects[slot];
+            float x = displayObject.getAbsoluteX();
+            float y = displayObject.getAbsoluteY();
+            xs[slot] = x;
+            ys[slot] = y;
+
+            long key = cellKey(x, y);
+            if (key != cellKeys[slot]) {
+                removeFromCell(slot);
+                addToCell(slot, key);
+            }
+        }
+        movedCount = 0;
+
+        for (int i = 0; i < viewpoints.size(); i++) {
+            viewpoints.get(i).refresh();
+        }
+
+        for (int i = 0; i < releasedCount; i++) {
+            objects[releasedSlots[i]] = null;
+            if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            freeSlots[freeCount++] = releasedSlots[i];
+        }
+        releasedCount = 0;
+    }
+
+    /**
+     * Queues the tracked objects in the subtree of the changed object, their absolute positions moved with it
+     */
+    private void markMoved(DisplayObject displayObject) {
+        Integer slot = slots.get(displayObject);
+        if (slot != null && !moved.get(slot)) {
+            moved.set(slot);
+            if (movedCount == movedSlots.length) movedSlots = Arrays.copyOf(movedSlots, movedCount * 2);
+            movedSlots[movedCount++] = slot;
+        }
+
+        if (displayObject instanceof Container container) {
+            for (int i = 0; i < container.getNumChildren(); i++) {
+                markMoved(container.getChild(i));
+            }
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) return freeSlots[--freeCount];
+
+        if (slotCount == objects.length) {
+            int capacity = slotCount * 2;
+            objects = Arrays.copyOf(objects, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            cellKeys = Arrays.copyOf(cellKeys, capacity);
+            cellIndices = Arrays.copyOf(cellIndices, capacity);
+        }
+        return slotCount++;
+    }
+
+    private void place(int slot) {
+        if (cellKeys[slot] != NO_CELL) return;
+
+        DisplayObject displayObject = objects[slot];
+        xs[slot] = displayObject.getAbsoluteX();
+        ys[slot] = displayObject.getAbsoluteY();
+        addToCell(slot, cellKey(xs[slot], ys[slot]));
+    }
+
+    private void unplace(int slot) {
+        if (cellKeys[slot] == NO_CELL) return;
+
+        removeFromCell(slot);
+        cellKeys[slot] = NO_CELL;
+    }
+
+    private void addToCell(int slot, long key) {
+        Cell cell = cells.computeIfAbsent(key, k -> new Cell());
+        cellIndices[slot] = cell.add(slot);
+        cellKeys[slot] = key;
+    }
+
+    private void removeFromCell(int slot) {
+        Cell cell = cells.get(cellKeys[slot]);
+        int moved = cell.removeAt(cellIndices[slot]);
+        if (moved != -1) cellIndices[moved] = cellIndices[slot];
+        if (cell.size == 0) cells.remove(cellKeys[slot]);
+    }
+
+    private long cellKey(float x, float y) {
+        return cellKey((int) Math.floor(x / cellSize), (int) Math.floor(y / cellSize));
+    }
+
+    private static long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    private static class Cell {
+        private int[] slots = new int[8];
+        private int size;
+
+        private int add(int slot) {
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            slots[size] = slot;
+            return size++;
+        }
+
+        /**
+         * @return slot moved into the freed position or -1
+         */
+        private int removeAt(int index) {
+            int last = --size;
+            if (index == last) return -1;
+            slots[index] = slots[last];
+            return slots[index];
+        }
+    }
+
+    /**
+     * Area of interest of one client, a rectangle around a point in stage coordinates.
+     * The entered, left and updated lists are rebuilt by every {@link InterestGrid#update()}.
+     */
+    public class Viewpoint {
+
+        private final BitSet inside = new BitSet();
+        private final BitSet seen = new BitSet();
+        private int[] current = new int[64];
+        private int currentCount;
+        private int[] next = new int[64];
+        private int nextCount;
+
+        private final List<DisplayObject> entered = new ArrayList<>();
+        private final List<DisplayObject> left = new ArrayList<>();
+        private final List<DisplayObject> updated = new ArrayList<>();
+
+        @Getter
+        private float x;
+        @Getter
+        private float y;
+        @Getter
+        private float halfWidth;
+        @Getter
+        private float halfHeight;
+
+        private Viewpoint(float halfWidth, float halfHeight) {
+            setHalfSize(halfWidth, halfHeight);
+        }
+
+        public void setPosition(float x, float y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        public void setHalfSize(float halfWidth, float halfHeight) {
+            this.halfWidth = halfWidth;
+            this.halfHeight = halfHeight;
+        }
+
+        /**
+         * @return objects that came into the area, replicate them with full state
+         */
+        public List<DisplayObject> getEntered() {
+            return entered;
+        }
+
+        /**
+         * @return objects that went out of the area or off stage
+         */
+        public List<DisplayObject> getLeft() {
+            return left;
+        }
+
+        /**
+         * @return objects that stayed in the area, replicate only their changes
+         */
+        public List<DisplayObject> getUpdated() {
+            return updated;
+        }
+
+        public boolean isInterestedIn(DisplayObject displayObject) {
+            Integer slot = slots.get(displayObject);
+            return slot != null && inside.get(slot);
+        }
+
+        private void refresh() {
+            entered.clear();
+            left.clear();
+            updated.clear();
+            nextCount = 0;
+
+            float minX = x - halfWidth;
+            float minY = y - halfHeight;
+            float maxX = x + halfWidth;
+            float maxY = y + halfHeight;
+
+            int fromCellX = (int) Math.floor(minX / cellSize);
+            int toCellX = (int) Math.floor(maxX / cellSize);
+            int fromCellY = (int) Math.floor(minY / cellSize);
+            int toCellY = (int) Math.floor(maxY / cellSize);
+
+            for (int cellY = fromCellY; cellY <= toCellY; cellY++) {
+                for (int cellX = fromCellX; cellX <= toCellX; cellX++) {
+                    Cell cell = cells.get(cellKey(cellX, cellY));
+                    if (cell == null) continue;
+
+                    for (int i = 0; i < cell.size; i++) {
+                        int slot = cell.slots[i];
+                        float sx = xs[slot];
+                        float sy = ys[slot];
+                        if (sx < minX || sx > maxX || sy < minY || sy > maxY) continue;
+
+                        if (nextCount == next.length) next = Arrays.copyOf(next, nextCount * 2);
+                        next[nextCount++] = slot;
+                        seen.set(slot);
+
+                        if (inside.get(slot)) {
+                            updated.add(objects[slot]);
+                        } else {
+                            entered.add(objects[slot]);
+                        }
+                    }
+                }
+            }
+
+            for (int i = 0; i < currentCount; i++) {
+                int slot = current[i];
+                if (!seen.get(slot)) {
+                    left.add(objects[slot]);
+                    inside.clear(slot);
+                }
+            }
+
+            for (int i = 0; i < nextCount; i++) {
+                int slot = next[i];
+                seen.clear(slot);
+                inside.set(slot);
+            }
+
+            int[] swap = current;
+            current = next;
+            currentCount = nextCount;
+            next = swap;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.replication;
+
+import com.ancevt.d2d2.display.DisplayObject;
+
+/**
+ * Creates the client side counterpart of a replicated display object.
+ * The name is the server object's name, so naming server objects by archetype
+ * (e.g. "player", "bullet") lets the client build a sprite with the right texture.
+ */
+@FunctionalInterface
+public interface ReplicaFactory {
+
+    DisplayObject create(String name);
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.replication;
+
+import com.ancevt.d2d2.display.Container;
+import com.ancevt.d2d2.display.DisplayObject;
+import com.ancevt.d2d2.display.Playable;
+import com.ancevt.d2d2.display.SimpleContainer;
+import com.ancevt.d2d2.display.text.Text;
+import lombok.Getter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Client side of Stage replication, applies frames produced by {@link ReplicationEncoder}
+ * to a local container. Replicas are created by a {@link ReplicaFactory} and keyed by the
+ * server display object id.
+ */
+public class ReplicationApplier {
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private final Container root;
+    private final ReplicaFactory factory;
+    private final Map<Integer, DisplayObject> replicas = new HashMap<>();
+    private final Map<DisplayObject, Integer> replicaIds = new IdentityHashMap<>();
+    private final ByteBuffer lengthPrefix = ByteBuffer.allocate(Integer.BYTES);
+    private ByteBuffer frame = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    @Getter
+    private int tick;
+
+    public ReplicationApplier(Container root) {
+        this(root, name -> new SimpleContainer());
+    }
+
+    public ReplicationApplier(Container root, ReplicaFactory factory) {
+        this.root = root;
+        this.factory = factory;
+    }
+
+    /**
+     * Reads one length-prefixed frame (see {@link ReplicationEncoder#writeTo}) and applies it.
+     * Blocks until the whole frame is read if the channel is blocking.
+     *
+     * @return false if the channel reached end of stream
+     */
+    public boolean readFrom(ReadableByteChannel channel) throws IOException {
+        lengthPrefix.clear();
+        if (!readFully(channel, lengthPrefix)) return false;
+        int length = lengthPrefix.flip().getInt();
+
+        if (frame.capacity() < length) {
+            frame = ByteBuffer.allocate(Math.max(frame.capacity() * 2, length));
+        }
+        frame.clear().limit(length);
+        if (!readFully(channel, frame)) throw new EOFException("Replication frame truncated");
+
+        apply(frame.flip());
+        return true;
+    }
+
+    public void apply(ByteBuffer buffer) {
+        tick = WireFormat.getVarint(buffer);
+
+        while (buffer.hasRemaining()) {
+            int id = WireFormat.getVarint(buffer) - 1;
+            int flags = WireFormat.getVarint(buffer);
+
+            if ((flags & WireFormat.REMOVE) != 0) {
+                DisplayObject replica = replicas.get(id);
+                if (replica != null) {
+                    replica.removeFromParent();
+                    forget(replica);
+                }
+                continue;
+            }
+
+            DisplayObject replica = replicas.get(id);
+
+            if ((flags & WireFormat.ADD) != 0) {
+                int parentId = WireFormat.getVarint(buffer) - 1;
+                int previousId = WireFormat.getVarint(buffer) - 1;
+                String name = WireFormat.getString(buffer);
+
+                if (replica == null) {
+                    replica = factory.create(name);
+                    replica.setName(name);
+                    replicas.put(id, replica);
+                    replicaIds.put(replica, id);
+                }
+
+                if ((parentId == -1 ? root : replicas.get(parentId)) instanceof Container parent) {
+                    insert(parent, replica, previousId);
+                }
+            }
+
+            readFields(buffer, replica, flags);
+        }
+    }
+
+    public DisplayObject getReplica(int serverDisplayObjectId) {
+        return replicas.get(serverDisplayObjectId);
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    private void readFields(ByteBuffer buffer, DisplayObject replica, int flags) {
+        // fields are consumed even for unknown replicas to stay in sync with the stream
+        if ((flags & WireFormat.X) != 0) {
+            float x = WireFormat.getFixed(buffer, WireFormat.POSITION_UNITS);
+            if (replica != null) replica.setX(x);
+        }
+        if ((flags & WireFormat.Y) != 0) {
+            float y = WireFormat.getFixed(buffer, WireFormat.POSITION_UNITS);
+            if (replica != null) replica.setY(y);
+        }
+        if ((flags & WireFormat.ROTATION) != 0) {
+            float rotation = WireFormat.getRotation(buffer);
+            if (replica != null) replica.setRotation(rotation);
+        }
+        if ((flags & WireFormat.ALPHA) != 0) {
+            float alpha = WireFormat.getAlpha(buffer);
+            if (replica != null) replica.setAlpha(alpha);
+        }
+        if ((flags & WireFormat.SCALE_X) != 0) {
+            float scaleX = WireFormat.getFixed(buffer, WireFormat.SCALE_UNITS);
+            if (replica != null) replica.setScaleX(scaleX);
+        }
+        if ((flags & WireFormat.SCALE_Y) != 0) {
+            float scaleY = WireFormat.getFixed(buffer, WireFormat.SCALE_UNITS);
+            if (replica != null) replica.setScaleY(scaleY);
+        }
+        if ((flags & WireFormat.VISIBLE) != 0 && replica != null) {
+            replica.setVisible((flags & WireFormat.VISIBLE_VALUE) != 0);
+        }
+        if ((flags & WireFormat.FRAME) != 0) {
+            int frameIndex = WireFormat.getVarint(buffer);
+            if (replica instanceof Playable playable
+                && frameIndex < playable.getNumFrames()
+                && frameIndex != playable.getCurrentFrameIndex()) {
+                playable.setFrame(frameIndex);
+            }
+        }
+        if ((flags & WireFormat.TEXT) != 0) {
+            String text = WireFormat.getString(buffer);
+            if (replica instanceof Text t) t.setText(text);
+        }
+    }
+
+    private void insert(Container parent, DisplayObject replica, int previousId) {
+        if (replica.getParent() == parent) parent.removeChild(replica);
+
+        DisplayObject previous = previousId == -1 ? null : replicas.get(previousId);
+        int index = previous == null ? -1 : parent.indexOf(previous);
+
+        if (previousId == -1) {
+            parent.addChild(replica, 0);
+        } else if (index == -1) {
+            parent.addChild(replica);
+        } else {
+            parent.addChild(replica, index + 1);
+        }
+    }
+
+    private void forget(DisplayObject replica) {
+        Integer id = replicaIds.remove(replica);
+        if (id != null) replicas.remove(id);
+
+        if (replica instanceof Container container && !(replica instanceof Playable)) {
+            for (int i = 0; i < container.getNumChildren(); i++) {
+                forget(container.getChild(i));
+            }
+        }
+    }
+
+    private static boolean readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,292 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.replication;
+
+import com.ancevt.d2d2.display.BaseDisplayObject;
+import com.ancevt.d2d2.display.ChangeTracker;
+import com.ancevt.d2d2.display.Container;
+import com.ancevt.d2d2.display.DisplayObject;
+import com.ancevt.d2d2.display.Playable;
+import com.ancevt.d2d2.display.text.Text;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Server side of Stage replication. Each {@link #encode()} turns the changes collected by
+ * {@link ChangeTracker} since the previous call into one binary frame, so its size and cost
+ * depend on what changed rather than on the size of the scene. The first frame carries the
+ * whole subtree of the root. Children of {@link Playable} containers are not replicated,
+ * their state is the frame index.
+ * <p>
+ * One encoder consumes the tracker, the same frame is meant to be sent to every client.
+ * Use {@link #encodeSnapshot()} for clients joining later.
+ */
+public class ReplicationEncoder {
+
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final int RECORD_RESERVE = 64;
+
+    private final Container root;
+    private final BitSet known = new BitSet();
+    private final BitSet emitted = new BitSet();
+    private final List<BaseDisplayObject> removals = new ArrayList<>();
+    private final ByteBuffer lengthPrefix = ByteBuffer.allocate(Integer.BYTES);
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    private int[] emittedIds = new int[64];
+    private int emittedCount;
+    private boolean started;
+
+    @Getter
+    private int tick;
+
+    public ReplicationEncoder(Container root) {
+        this.root = root;
+        ChangeTracker.setEnabled(true);
+    }
+
+    /**
+     * @return frame buffer, valid until the next encode call
+     */
+    public ByteBuffer encode() {
+        beginFrame();
+
+        if (!started) {
+            started = true;
+            writeSubtree(root, true);
+        }
+
+        int size = ChangeTracker.size();
+        for (int i = 0; i < size; i++) {
+            BaseDisplayObject displayObject = ChangeTracker.get(i);
+            int id = displayObject.getDisplayObjectId();
+            if (emitted.get(id)) continue;
+
+            int flags = displayObject.getChangeFlags();
+
+            if ((flags & ChangeTracker.PARENT) != 0) {
+                if (isReplicatedContainer(displayObject.getParent())) {
+                    writeAdd(displayObject, false);
+                } else if (known.get(id)) {
+                    // removals go last so that objects moved out of a removed subtree are re-parented first
+                    removals.add(displayObject);
+                }
+            } else if (known.get(id)) {
+                writeUpdate(displayObject, flags);
+            }
+        }
+
+        for (int i = 0; i < removals.size(); i++) {
+            BaseDisplayObject displayObject = removals.get(i);
+            int id = displayObject.getDisplayObjectId();
+            if (!known.get(id) || emitted.get(id)) continue;
+
+            // the new parent may have been added later in this tick
+            if (isReplicatedContainer(displayObject.getParent())) {
+                writeAdd(displayObject, false);
+                continue;
+            }
+
+            ensureCapacity(RECORD_RESERVE);
+            WireFormat.putVarint(buffer, id + 1);
+            WireFormat.putVarint(buffer, WireFormat.REMOVE);
+            forget(displayObject);
+        }
+        removals.clear();
+
+        ChangeTracker.clear();
+        return endFrame();
+    }
+
+    /**
+     * Full state of the replicated tree for a newly connected client. Does not consume changes.
+     *
+     * @return frame buffer, valid until the next encode call
+     */
+    public ByteBuffer encodeSnapshot() {
+        beginFrame();
+        writeSubtree(root, true);
+        return endFrame();
+    }
+
+    /**
+     * Writes the last encoded frame with a 4-byte length prefix. The frame stays intact,
+     * so it can be written to several channels in turn.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        int position = buffer.position();
+
+        lengthPrefix.clear();
+        lengthPrefix.putInt(buffer.remaining()).flip();
+        while (lengthPrefix.hasRemaining()) channel.write(lengthPrefix);
+        while (buffer.hasRemaining()) channel.write(buffer);
+
+        buffer.position(position);
+    }
+
+    private void beginFrame() {
+        buffer.clear();
+        WireFormat.putVarint(buffer, tick++);
+    }
+
+    private ByteBuffer endFrame() {
+        for (int i = 0; i < emittedCount; i++) {
+            emitted.clear(emittedIds[i]);
+        }
+        emittedCount = 0;
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private boolean isReplicatedContainer(Container container) {
+        if (container == null || container instanceof Playable) return false;
+        return container == root || (container instanceof BaseDisplayObject b && known.get(b.getDisplayObjectId()));
+    }
+
+    private void writeSubtree(Container container, boolean full) {
+        if (container instanceof Playable) return;
+
+        for (int i = 0; i < container.getNumChildren(); i++) {
+            DisplayObject child = container.getChild(i);
+            // known children are re-sent too when they were moved in during this tick
+            if (child instanceof BaseDisplayObject b
+                && !emitted.get(b.getDisplayObjectId())
+                && (full || !known.get(b.getDisplayObjectId()) || (b.getChangeFlags() & ChangeTracker.PARENT) != 0)) {
+                writeAdd(b, full);
+            }
+        }
+    }
+
+    private void writeAdd(BaseDisplayObject displayObject, boolean full) {
+        int id = displayObject.getDisplayObjectId();
+        Container parent = displayObject.getParent();
+        byte[] name = displayObject.getName().getBytes(StandardCharsets.UTF_8);
+
+        int flags = WireFormat.ADD;
+        if (!full && known.get(id)) {
+            // a re-parented replica keeps its old state on the client, so nothing may be left out
+            flags |= WireFormat.X | WireFormat.Y | WireFormat.ROTATION | WireFormat.ALPHA
+                | WireFormat.SCALE_X | WireFormat.SCALE_Y | WireFormat.VISIBLE;
+            if (displayObject.isVisible()) flags |= WireFormat.VISIBLE_VALUE;
+        }
+        if (displayObject.getX() != 0f) flags |= WireFormat.X;
+        if (displayObject.getY() != 0f) flags |= WireFormat.Y;
+        if (displayObject.getRotation() != 0f) flags |= WireFormat.ROTATION;
+        if (displayObject.getAlpha() != 1f) flags |= WireFormat.ALPHA;
+        if (displayObject.getScaleX() != 1f) flags |= WireFormat.SCALE_X;
+        if (displayObject.getScaleY() != 1f) flags |= WireFormat.SCALE_Y;
+        if (!displayObject.isVisible()) flags |= WireFormat.VISIBLE;
+        if (displayObject instanceof Playable) flags |= WireFormat.FRAME;
+        if (displayObject instanceof Text) flags |= WireFormat.TEXT;
+
+        ensureCapacity(RECORD_RESERVE + name.length);
+        WireFormat.putVarint(buffer, id + 1);
+        WireFormat.putVarint(buffer, flags);
+        WireFormat.putVarint(buffer, parent == root ? 0 : ((BaseDisplayObject) parent).getDisplayObjectId() + 1);
+        int index = parent.indexOf(displayObject);
+        WireFormat.putVarint(buffer, index > 0 && parent.getChild(index - 1) instanceof BaseDisplayObject previous
+            ? previous.getDisplayObjectId() + 1
+            : 0);
+        WireFormat.putString(buffer, name);
+        writeFields(displayObject, flags);
+
+        markEmitted(id);
+        known.set(id);
+
+        if (displayObject instanceof Container container) {
+            writeSubtree(container, full);
+        }
+    }
+
+    private void writeUpdate(BaseDisplayObject displayObject, int changeFlags) {
+        int flags = 0;
+        if ((changeFlags & ChangeTracker.X) != 0) flags |= WireFormat.X;
+        if ((changeFlags & ChangeTracker.Y) != 0) flags |= WireFormat.Y;
+        if ((changeFlags & ChangeTracker.ROTATION) != 0) flags |= WireFormat.ROTATION;
+        if ((changeFlags & ChangeTracker.ALPHA) != 0) flags |= WireFormat.ALPHA;
+        if ((changeFlags & ChangeTracker.SCALE_X) != 0) flags |= WireFormat.SCALE_X;
+        if ((changeFlags & ChangeTracker.SCALE_Y) != 0) flags |= WireFormat.SCALE_Y;
+        if ((changeFlags & ChangeTracker.VISIBLE) != 0) flags |= WireFormat.VISIBLE;
+        if ((changeFlags & ChangeTracker.FRAME) != 0 && displayObject instanceof Playable) flags |= WireFormat.FRAME;
+        if ((changeFlags & ChangeTracker.TEXT) != 0 && displayObject instanceof Text) flags |= WireFormat.TEXT;
+        if (flags == 0) return;
+        if ((flags & WireFormat.VISIBLE) != 0 && displayObject.isVisible()) flags |= WireFormat.VISIBLE_VALUE;
+
+        ensureCapacity(RECORD_RESERVE);
+        WireFormat.putVarint(buffer, displayObject.getDisplayObjectId() + 1);
+        WireFormat.putVarint(buffer, flags);
+        writeFields(displayObject, flags);
+        markEmitted(displayObject.getDisplayObjectId());
+    }
+
+    private void writeFields(BaseDisplayObject displayObject, int flags) {
+        if ((flags & WireFormat.X) != 0) WireFormat.putFixed(buffer, displayObject.getX(), WireFormat.POSITION_UNITS);
+        if ((flags & WireFormat.Y) != 0) WireFormat.putFixed(buffer, displayObject.getY(), WireFormat.POSITION_UNITS);
+        if ((flags & WireFormat.ROTATION) != 0) WireFormat.putRotation(buffer, displayObject.getRotation());
+        if ((flags & WireFormat.ALPHA) != 0) WireFormat.putAlpha(buffer, displayObject.getAlpha());
+        if ((flags & WireFormat.SCALE_X) != 0) WireFormat.putFixed(buffer, displayObject.getScaleX(), WireFormat.SCALE_UNITS);
+        if ((flags & WireFormat.SCALE_Y) != 0) WireFormat.putFixed(buffer, displayObject.getScaleY(), WireFormat.SCALE_UNITS);
+        if ((flags & WireFormat.FRAME) != 0) {
+            WireFormat.putVarint(buffer, ((Playable) displayObject).getCurrentFrameIndex());
+        }
+        if ((flags & WireFormat.TEXT) != 0) {
+            String text = ((Text) displayObject).getText();
+            byte[] utf8 = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+            ensureCapacity(RECORD_RESERVE + utf8.length);
+            WireFormat.putString(buffer, utf8);
+        }
+    }
+
+    private void forget(BaseDisplayObject displayObject) {
+        known.clear(displayObject.getDisplayObjectId());
+
+        if (displayObject instanceof Container container && !(displayObject instanceof Playable)) {
+            for (int i = 0; i < container.getNumChildren(); i++) {
+                if (container.getChild(i) instanceof BaseDisplayObject b && known.get(b.getDisplayObjectId())) {
+                    forget(b);
+                }
+            }
+        }
+    }
+
+    private void markEmitted(int id) {
+        if (emittedCount == emittedIds.length) {
+            int[] grown = new int[emittedCount * 2];
+            System.arraycopy(emittedIds, 0, grown, 0, emittedCount);
+            emittedIds = grown;
+        }
+        emittedIds[emittedCount++] = id;
+        emitted.set(id);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+}
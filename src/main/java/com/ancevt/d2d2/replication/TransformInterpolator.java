@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.replication;
+
+import com.ancevt.d2d2.display.BaseDisplayObject;
+import com.ancevt.d2d2.display.Stage;
+import com.ancevt.d2d2.event.Event;
+import com.ancevt.d2d2.time.Clock;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Arrays;
+
+/**
+ * Smooths replicated transforms on the client. Each interpolated object keeps a small ring
+ * of timestamped samples (x, y, rotation, scale) in shared primitive arrays; {@link #update(long)}
+ * renders all objects at {@code now - delay} in one pass, interpolating between the
+ * surrounding samples or extrapolating from the last two for at most {@link #getMaxExtrapolation()}.
+ * <p>
+ * Sample times and the update time must come from the same clock, in milliseconds.
+ */
+public class TransformInterpolator {
+
+    private static final int DEFAULT_SAMPLES = 8;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int samples;
+
+    @Getter
+    @Setter
+    private long delay = 100;
+
+    @Getter
+    @Setter
+    private long maxExtrapolation = 250;
+
+    private BaseDisplayObject[] objects = new BaseDisplayObject[INITIAL_CAPACITY];
+    private int[] heads = new int[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int[] denseIndices = new int[INITIAL_CAPACITY];
+
+    private long[] times;
+    private float[] xs;
+    private float[] ys;
+    private float[] rotations;
+    private float[] scaleXs;
+    private float[] scaleYs;
+
+    private int[] dense = new int[INITIAL_CAPACITY];
+    private int denseCount;
+
+    private int[] freeHandles = new int[16];
+    private int freeCount;
+    private int handleCount;
+
+    public TransformInterpolator() {
+        this(DEFAULT_SAMPLES);
+    }
+
+    /**
+     * @param samples samples kept per object, enough to cover the delay at the server update rate
+     */
+    public TransformInterpolator(int samples) {
+        this.samples = samples;
+        int size = INITIAL_CAPACITY * samples;
+        times = new long[size];
+        xs = new float[size];
+        ys = new float[size];
+        rotations = new float[size];
+        scaleXs = new float[size];
+        scaleYs = new float[size];
+    }
+
+    /**
+     * Runs {@link #update(long)} with the {@link Clock} once per frame, before the stage's children
+     */
+    public void attach(Stage stage) {
+        stage.addEventListener(this, Event.ENTER_FRAME, event -> update(Clock.currentTimeMillis()));
+    }
+
+    public void detach(Stage stage) {
+        stage.removeEventListener(this, Event.ENTER_FRAME);
+    }
+
+    /**
+     * @return handle used to push samples and to remove the object
+     */
+    public int add(BaseDisplayObject displayObject) {
+        int handle = freeCount > 0 ? freeHandles[--freeCount] : newHandle();
+
+        objects[handle] = displayObject;
+        heads[handle] = 0;
+        counts[handle] = 0;
+
+        denseIndices[handle] = denseCount;
+        dense[denseCount++] = handle;
+        return handle;
+    }
+
+    public void remove(int handle) {
+        if (objects[handle] == null) return;
+        objects[handle] = null;
+
+        int index = denseIndices[handle];
+        int last = dense[--denseCount];
+        dense[index] = last;
+        denseIndices[last] = index;
+
+        if (freeCount == freeHandles.length) freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+        freeHandles[freeCount++] = handle;
+    }
+
+    public int size() {
+        return denseCount;
+    }
+
+    /**
+     * Adds a received transform. Samples older than the newest one are dropped.
+     */
+    public void push(int handle, long time, float x, float y, float rotation, float scaleX, float scaleY) {
+        int count = counts[handle];
+        int base = handle * samples;
+
+        if (count > 0 && time <= times[base + (heads[handle] + count - 1) % samples]) return;
+
+        int index;
+        if (count < samples) {
+            index = base + (heads[handle] + count) % samples;
+            counts[handle] = count + 1;
+        } else {
+            index = base + heads[handle];
+            heads[handle] = (heads[handle] + 1) % samples;
+        }
+
+        times[index] = time;
+        xs[index] = x;
+        ys[index] = y;
+        rotations[index] = rotation;
+        scaleXs[index] = scaleX;
+        scaleYs[index] = scaleY;
+    }
+
+    /**
+     * Samples the current transform of the object, e.g. right after a replication frame was applied
+     */
+    public void push(int handle, long time) {
+        BaseDisplayObject o = objects[handle];
+        push(handle, time, o.getX(), o.getY(), o.getRotation(), o.getScaleX(), o.getScaleY());
+    }
+
+    public void update(long now) {
+        long renderTime = now - delay;
+
+        for (int i = 0; i < denseCount; i++) {
+            int handle = dense[i];
+            int count = counts[handle];
+            if (count == 0) continue;
+
+            int base = handle * samples;
+            int head = heads[handle];
+
+            int newest = base + (head + count - 1) % samples;
+            int a;
+            int b;
+
+            if (count == 1 || renderTime <= times[base + head]) {
+                apply(objects[handle], base + head, 0f, base + head);
+                continue;
+            }
+
+            if (renderTime >= times[newest]) {
+                // extrapolate along the last segment, bounded so lost packets do not fling objects away
+                a = base + (head + count - 2) % samples;
+                b = newest;
+                renderTime = Math.min(renderTime, times[newest] + maxExtrapolation);
+            } else {
+                int k = count - 2;
+                while (k > 0 && times[base + (head + k) % samples] > renderTime) k--;
+                a = base + (head + k) % samples;
+                b = base + (head + k + 1) % samples;
+            }
+
+            long span = times[b] - times[a];
+            float t = span == 0 ? 1f : (float) (renderTime - times[a]) / span;
+            apply(objects[handle], a, t, b);
+        }
+    }
+
+    private void apply(BaseDisplayObject displayObject, int a, float t, int b) {
+        displayObject.setXY(xs[a] + (xs[b] - xs[a]) * t, ys[a] + (ys[b] - ys[a]) * t);
+        displayObject.setScale(scaleXs[a] + (scaleXs[b] - scaleXs[a]) * t, scaleYs[a] + (scaleYs[b] - scaleYs[a]) * t);
+
+        float delta = (rotations[b] - rotations[a]) % 360f;
+        if (delta > 180f) delta -= 360f;
+        else if (delta < -180f) delta += 360f;
+        displayObject.setRotation(rotations[a] + delta * t);
+    }
+
+    private int newHandle() {
+        if (handleCount == objects.length) {
+            int capacity = handleCount * 2;
+            objects = Arrays.copyOf(objects, capacity);
+            heads = Arrays.copyOf(heads, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            denseIndices = Arrays.copyOf(denseIndices, capacity);
+            dense = Arrays.copyOf(dense, capacity);
+
+            int size = capacity * samples;
+            times = Arrays.copyOf(times, size);
+            xs = Arrays.copyOf(xs, size);
+            ys = Arrays.copyOf(ys, size);
+            rotations = Arrays.copyOf(rotations, size);
+            scaleXs = Arrays.copyOf(scaleXs, size);
+            scaleYs = Arrays.copyOf(scaleYs, size);
+        }
+        return handleCount++;
+    }
+}
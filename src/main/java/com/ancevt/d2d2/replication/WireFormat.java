@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.replication;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Replication frame layout:
+ * <pre>
+ * frame:  varint tick, record*
+ * record: varint (id + 1), varint flags,
+ *         [ADD: varint parent (0 = root, else id + 1), varint previous sibling (0 = first, else id + 1), string name],
+ *         [X], [Y], [ROTATION], [ALPHA], [SCALE_X], [SCALE_Y], [FRAME], [TEXT]
+ * </pre>
+ * Positions and scales are zigzag varints of fixed point values, rotation is an unsigned
+ * 16-bit fraction of a turn, alpha a byte. Visibility travels in the flags themselves.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class WireFormat {
+
+    static final int X = 1;
+    static final int Y = 1 << 1;
+    static final int ROTATION = 1 << 2;
+    static final int ALPHA = 1 << 3;
+    static final int SCALE_X = 1 << 4;
+    static final int SCALE_Y = 1 << 5;
+    static final int FRAME = 1 << 6;
+    static final int VISIBLE = 1 << 7;
+    static final int VISIBLE_VALUE = 1 << 8;
+    static final int TEXT = 1 << 9;
+    static final int ADD = 1 << 10;
+    static final int REMOVE = 1 << 11;
+
+    static final float POSITION_UNITS = 16f;
+    static final float SCALE_UNITS = 1024f;
+    static final float ROTATION_UNITS = 65536f / 360f;
+
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static void putSigned(ByteBuffer buffer, int value) {
+        putVarint(buffer, (value << 1) ^ (value >> 31));
+    }
+
+    static int getSigned(ByteBuffer buffer) {
+        int value = getVarint(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void putFixed(ByteBuffer buffer, float value, float units) {
+        putSigned(buffer, Math.round(value * units));
+    }
+
+    static float getFixed(ByteBuffer buffer, float units) {
+        return getSigned(buffer) / units;
+    }
+
+    static void putRotation(ByteBuffer buffer, float degrees) {
+        buffer.putShort((short) Math.round(degrees * ROTATION_UNITS));
+    }
+
+    static float getRotation(ByteBuffer buffer) {
+        return (buffer.getShort() & 0xFFFF) / ROTATION_UNITS;
+    }
+
+    static void putAlpha(ByteBuffer buffer, float alpha) {
+        buffer.put((byte) Math.round(Math.max(0f, Math.min(1f, alpha)) * 255f));
+    }
+
+    static float getAlpha(ByteBuffer buffer) {
+        return (buffer.get() & 0xFF) / 255f;
+    }
+
+    static void putString(ByteBuffer buffer, byte[] utf8) {
+        putVarint(buffer, utf8.length);
+        buffer.put(utf8);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = getVarint(buffer);
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+}
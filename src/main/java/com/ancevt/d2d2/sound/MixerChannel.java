@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.sound;
+
+/**
+ * A voice source of {@link SoundMixer}. All methods are called from the mixer thread.
+ */
+interface MixerChannel {
+
+    /**
+     * Adds up to {@code frames} interleaved stereo frames to the mix buffer
+     *
+     * @return false when the channel has finished and should be released
+     */
+    boolean mix(int[] mixBuffer, int frames);
+
+    /**
+     * Called once when the channel leaves the mixer, finished or stolen
+     */
+    void release();
+
+    /**
+     * @return whether the mixer may cut this channel off when it runs out of voices
+     */
+    default boolean isStealable() {
+        return true;
+    }
+
+    /**
+     * @return frames left to play, used to pick the voice to steal
+     */
+    default long getRemainingFrames() {
+        return Long.MAX_VALUE;
+    }
+
+    static float leftGain(float volume, float pan) {
+        return (float) Math.pow(10.0, volume / 20.0) * Math.min(1f, 1f - pan);
+    }
+
+    static float rightGain(float volume, float pan) {
+        return (float) Math.pow(10.0, volume / 20.0) * Math.min(1f, 1f + pan);
+    }
+}
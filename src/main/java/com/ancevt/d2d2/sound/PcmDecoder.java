@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.sound;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes any format supported by the installed audio SPIs (WAV, OGG, MP3)
+ * into 16-bit interleaved stereo samples at the mixer sample rate.
+ */
+final class PcmDecoder {
+
+    private PcmDecoder() {
+    }
+
+    static short[] decode(InputStream inputStream) {
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(new BufferedInputStream(inputStream))) {
+            AudioFormat inFormat = in.getFormat();
+            int channels = inFormat.getChannels();
+            float rate = inFormat.getSampleRate();
+
+            AudioFormat pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, channels * 2, rate, false);
+
+            byte[] bytes;
+            try (AudioInputStream pcm = AudioSystem.getAudioInputStream(pcmFormat, in)) {
+                bytes = pcm.readAllBytes();
+            }
+
+            int frames = bytes.length / (channels * 2);
+            short[] stereo = new short[frames * SoundMixer.CHANNELS];
+
+            for (int frame = 0; frame < frames; frame++) {
+                int offset = frame * channels * 2;
+                short left = (short) ((bytes[offset] & 0xFF) | (bytes[offset + 1] << 8));
+                short right = channels > 1
+                    ? (short) ((bytes[offset + 2] & 0xFF) | (bytes[offset + 3] << 8))
+                    : left;
+                stereo[frame * 2] = left;
+                stereo[frame * 2 + 1] = right;
+            }
+
+            return rate == SoundMixer.SAMPLE_RATE ? stereo : resample(stereo, rate, SoundMixer.SAMPLE_RATE);
+        } catch (UnsupportedAudioFileException | IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static short[] resample(short[] stereo, float fromRate, float toRate) {
+        int inFrames = stereo.length / 2;
+        int outFrames = (int) ((long) inFrames * toRate / fromRate);
+        short[] result = new short[outFrames * 2];
+        double step = fromRate / toRate;
+
+        for (int frame = 0; frame < outFrames; frame++) {
+            double position = frame * step;
+            int index = (int) position;
+            float fraction = (float) (position - index);
+            int next = Math.min(index + 1, inFrames - 1);
+
+            for (int channel = 0; channel < 2; channel++) {
+                float a = stereo[index * 2 + channel];
+                float b = stereo[next * 2 + channel];
+                result[frame * 2 + channel] = (short) (a + (b - a) * fraction);
+            }
+        }
+        return result;
+    }
+}
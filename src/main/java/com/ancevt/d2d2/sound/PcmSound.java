@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.sound;
+
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sound decoded once into memory and played through the shared {@link SoundMixer}.
+ * Any number of overlapping plays of the same sound are allowed.
+ */
+public class PcmSound implements Sound {
+
+    private final ShortBuffer samples;
+    private final AtomicInteger activeVoices = new AtomicInteger();
+    private volatile int stopGeneration;
+    private volatile float volume;
+    private volatile float pan;
+
+    PcmSound(short[] samples) {
+        this.samples = ShortBuffer.wrap(samples).asReadOnlyBuffer();
+    }
+
+    @Override
+    public void play() {
+        if (!SoundSystem.isEnabled() || volume < -15f) return;
+        // counted before queueing, the mixer may release the voice before play returns
+        activeVoices.incrementAndGet();
+        try {
+            SoundMixer.getInstance().play(new Channel(stopGeneration));
+        } catch (RuntimeException e) {
+            activeVoices.decrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public void asyncPlay() {
+        play();
+    }
+
+    @Override
+    public void stop() {
+        stopGeneration++;
+    }
+
+    public boolean isPlaying() {
+        return activeVoices.get() > 0;
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        if (volume < -80f) volume = -80f;
+        if (volume >= 6f) volume = 6f;
+        this.volume = volume;
+    }
+
+    @Override
+    public float getVolume() {
+        return volume;
+    }
+
+    @Override
+    public void setPan(float pan) {
+        if (pan < -1f) {
+            pan = -1f;
+        } else if (pan > 1f) {
+            pan = 1f;
+        }
+        this.pan = pan;
+    }
+
+    @Override
+    public float getPan() {
+        return pan;
+    }
+
+    /**
+     * @return interleaved stereo 16-bit samples at {@link SoundMixer#SAMPLE_RATE}
+     */
+    public ShortBuffer getSamples() {
+        return samples.duplicate();
+    }
+
+    public int getFrameCount() {
+        return samples.capacity() / SoundMixer.CHANNELS;
+    }
+
+    public float getDuration() {
+        return getFrameCount() / SoundMixer.SAMPLE_RATE;
+    }
+
+    private class Channel implements MixerChannel {
+        private final int generation;
+        private int position;
+
+        private Channel(int generation) {
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean mix(int[] mixBuffer, int frameLimit) {
+            if (stopGeneration != generation) return false;
+
+            float leftGain = MixerChannel.leftGain(volume, pan);
+            float rightGain = MixerChannel.rightGain(volume, pan);
+
+            int frameCount = getFrameCount();
+            int frames = Math.min(frameLimit, frameCount - position);
+            int source = position * SoundMixer.CHANNELS;
+
+            for (int i = 0; i < frames; i++) {
+                mixBuffer[i * 2] += (int) (samples.get(source++) * leftGain);
+                mixBuffer[i * 2 + 1] += (int) (samples.get(source++) * rightGain);
+            }
+
+            position += frames;
+            return position < frameCount;
+        }
+
+        @Override
+        public long getRemainingFrames() {
+            return getFrameCount() - position;
+        }
+
+        @Override
+        public void release() {
+            activeVoices.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.sound;
+
+import com.ancevt.d2d2.asset.Assets;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps sounds decoded to PCM so playing them costs no parsing, no format conversion and no new line
+ */
+public class SoundBank {
+
+    private final Map<String, PcmSound> sounds = new ConcurrentHashMap<>();
+
+    public PcmSound load(String key, InputStream inputStream) {
+        PcmSound sound = new PcmSound(PcmDecoder.decode(inputStream));
+        sounds.put(key, sound);
+        return sound;
+    }
+
+    public PcmSound loadFile(String path) {
+        PcmSound sound = sounds.get(path);
+        if (sound == null) {
+            try (FileInputStream is = new FileInputStream(path)) {
+                sound = load(path, is);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+        return sound;
+    }
+
+    public PcmSound loadAsset(String path) {
+        PcmSound sound = sounds.get(':' + path);
+        if (sound == null) {
+            sound = load(':' + path, Assets.getAsset(path));
+        }
+        return sound;
+    }
+
+    public PcmSound get(String key) {
+        PcmSound sound = sounds.get(key);
+        if (sound == null) {
+            throw new IllegalArgumentException("No such sound in bank: " + key);
+        }
+        return sound;
+    }
+
+    public boolean contains(String key) {
+        return sounds.containsKey(key);
+    }
+
+    public void unload(String key) {
+        PcmSound sound = sounds.remove(key);
+        if (sound != null) sound.stop();
+    }
+
+    public void clear() {
+        sounds.values().forEach(PcmSound::stop);
+        sounds.clear();
+    }
+
+    /**
+     * @return decoded sample memory in bytes
+     */
+    public long getMemoryUsage() {
+        long result = 0;
+        for (PcmSound sound : sounds.values()) {
+            result += (long) sound.getFrameCount() * SoundMixer.CHANNELS * Short.BYTES;
+        }
+        return result;
+    }
+}
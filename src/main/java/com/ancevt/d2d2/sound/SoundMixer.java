@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.sound;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Single mixing thread writing all {@link PcmSound} and {@link StreamingSound} voices into one output line,
+ * so the thread count stays constant however many sounds play at once.
+ */
+@Slf4j
+public final class SoundMixer {
+
+    public static final float SAMPLE_RATE = 44100f;
+    public static final int CHANNELS = 2;
+
+    private static final int DEFAULT_MAX_VOICES = 32;
+    private static final int BLOCK_FRAMES = 512;
+
+    private static SoundMixer instance;
+
+    private final Voice[] voices;
+    private final Queue<Voice> pending = new ConcurrentLinkedQueue<>();
+    private final Object lock = new Object();
+    // guards starting the mix thread against the cleanup of the previous one
+    private final Object lifecycle = new Object();
+    private final int[] mixBuffer = new int[BLOCK_FRAMES * CHANNELS];
+    private final byte[] outBuffer = new byte[BLOCK_FRAMES * CHANNELS * 2];
+
+    private Thread thread;
+    private volatile boolean running;
+    private long startCounter;
+
+    @Getter
+    private volatile int activeVoiceCount;
+
+    private SoundMixer(int maxVoices) {
+        voices = new Voice[maxVoices];
+        for (int i = 0; i < maxVoices; i++) {
+            voices[i] = new Voice();
+        }
+    }
+
+    public static synchronized SoundMixer getInstance() {
+        if (instance == null) {
+            instance = new SoundMixer(DEFAULT_MAX_VOICES);
+        }
+        return instance;
+    }
+
+    public int getMaxVoices() {
+        return voices.length;
+    }
+
+    void play(MixerChannel channel) {
+        ensureStarted();
+
+        Voice voice = new Voice();
+        voice.channel = channel;
+        pending.add(voice);
+
+        synchronized (lock) {
+            lock.notify();
+        }
+
+        // the mix thread stopped meanwhile and may have drained the queue already
+        synchronized (lifecycle) {
+            if (!running && pending.remove(voice)) {
+                channel.release();
+            }
+        }
+    }
+
+    public synchronized void shutdown() {
+        running = false;
+        synchronized (lock) {
+            lock.notify();
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    private synchronized void ensureStarted() {
+        synchronized (lifecycle) {
+            if (running) return;
+
+            AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, SAMPLE_RATE, 16, CHANNELS, CHANNELS * 2, SAMPLE_RATE, false);
+            SourceDataLine line;
+            try {
+                line = AudioSystem.getSourceDataLine(format);
+                // a few blocks of buffering keeps trigger latency low
+                line.open(format, outBuffer.length * 4);
+                line.start();
+            } catch (LineUnavailableException | IllegalArgumentException e) {
+                // IllegalArgumentException means no line supports the format, e.g. no audio device at all
+                throw new IllegalStateException(e);
+            }
+
+            running = true;
+            thread = new Thread(() -> mixLoop(line), "d2d2-sound-mixer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void mixLoop(SourceDataLine line) {
+        try {
+            while (running) {
+                acceptPending();
+
+                if (activeVoiceCount == 0) {
+                    synchronized (lock) {
+                        while (running && pending.isEmpty()) {
+                            lock.wait();
+                        }
+                    }
+                    continue;
+                }
+
+                mixBlock();
+                line.write(outBuffer, 0, outBuffer.length);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error(e.getMessage(), e);
+        } finally {
+            synchronized (lifecycle) {
+                running = false;
+                releaseAll();
+            }
+            try {
+                line.drain();
+            } finally {
+                line.close();
+            }
+        }
+    }
+
+    /**
+     * Frees every voice and queued channel, so their sounds stop counting as playing
+     * and do not resume when the mixer is started again
+     */
+    private void releaseAll() {
+        for (Voice voice : voices) {
+            if (voice.channel != null) release(voice);
+        }
+
+        Voice incoming;
+        while ((incoming = pending.poll()) != null) {
+            incoming.channel.release();
+        }
+    }
+
+    private void acceptPending() {
+        Voice incoming;
+        while ((incoming = pending.poll()) != null) {
+            Voice slot = null;
+            for (Voice voice : voices) {
+                if (voice.channel == null) {
+                    slot = voice;
+                    break;
+                }
+            }
+
+            if (slot == null) {
+                // all voices busy, steal the stealable one closest to its end, the oldest on a tie
+                long slotRemaining = Long.MAX_VALUE;
+                for (Voice voice : voices) {
+                    if (!voice.channel.isStealable()) continue;
+                    long remaining = voice.channel.getRemainingFrames();
+                    if (slot == null || remaining < slotRemaining
+                        || (remaining == slotRemaining && voice.startIndex < slot.startIndex)) {
+                        slot = voice;
+                        slotRemaining = remaining;
+                    }
+                }
+                if (slot == null) {
+                    incoming.channel.release();
+                    continue;
+                }
+                release(slot);
+            }
+
+            slot.channel = incoming.channel;
+            slot.startIndex = startCounter++;
+            activeVoiceCount++;
+        }
+    }
+
+    private void mixBlock() {
+        Arrays.fill(mixBuffer, 0);
+
+        for (Voice voice : voices) {
+            if (voice.channel != null && !voice.channel.mix(mixBuffer, BLOCK_FRAMES)) {
+                release(voice);
+            }
+        }
+
+        for (int i = 0; i < mixBuffer.length; i++) {
+            int value = mixBuffer[i];
+            if (value > Short.MAX_VALUE) value = Short.MAX_VALUE;
+            else if (value < Short.MIN_VALUE) value = Short.MIN_VALUE;
+            outBuffer[i * 2] = (byte) value;
+            outBuffer[i * 2 + 1] = (byte) (value >> 8);
+        }
+    }
+
+    private void release(Voice voice) {
+        voice.channel.release();
+        voice.channel = null;
+        activeVoiceCount--;
+    }
+
+    private static class Voice {
+        private MixerChannel channel;
+        private long startIndex;
+    }
+}
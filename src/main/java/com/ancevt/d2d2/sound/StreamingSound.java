@@ -0,0 +1,363 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.sound;
+
+import com.ancevt.d2d2.asset.Assets;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Long sound (music) decoded incrementally on a dedicated thread into a small ring buffer
+ * which the {@link SoundMixer} consumes, so memory use does not depend on track length.
+ */
+@Slf4j
+public class StreamingSound implements Sound {
+
+    private static final int DEFAULT_BUFFER_FRAMES = 16384;
+    private static final int DECODE_CHUNK_BYTES = 8192;
+
+    private final Supplier<InputStream> source;
+    private final int bufferFrames;
+
+    private volatile float volume;
+    private volatile float pan;
+    private volatile Stream current;
+
+    @Getter
+    @Setter
+    private volatile boolean loop;
+
+    public StreamingSound(Supplier<InputStream> source) {
+        this(source, DEFAULT_BUFFER_FRAMES);
+    }
+
+    /**
+     * @param bufferFrames ring buffer size in stereo frames, rounded up to a power of two
+     */
+    public StreamingSound(Supplier<InputStream> source, int bufferFrames) {
+        this.source = source;
+        this.bufferFrames = Integer.highestOneBit(Math.max(1024, bufferFrames - 1)) << 1;
+    }
+
+    public static StreamingSound ofAsset(String assetPath) {
+        return new StreamingSound(() -> Assets.getAsset(assetPath));
+    }
+
+    /**
+     * The file is memory-mapped once; every playback reads it through the page cache instead of the heap
+     */
+    public static StreamingSound ofFile(String path) {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new StreamingSound(() -> new ByteBufferInputStream(mapped.duplicate()));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public void play() {
+        play(0f);
+    }
+
+    public void play(float fadeInSeconds) {
+        if (!SoundSystem.isEnabled() || volume < -15f) return;
+
+        stop();
+
+        Stream stream = new Stream(bufferFrames);
+        if (fadeInSeconds > 0f) {
+            stream.fadeGain = 0f;
+            stream.fadeTo(1f, fadeInSeconds);
+        }
+        // set only once the mixer took the stream, a failed play must not leave it playing
+        SoundMixer.getInstance().play(stream);
+        current = stream;
+        if (stream.stopped) {
+            // released by the mixer before current was set
+            if (current == stream) current = null;
+            return;
+        }
+        stream.start();
+    }
+
+    @Override
+    public void asyncPlay() {
+        play();
+    }
+
+    @Override
+    public void stop() {
+        Stream stream = current;
+        if (stream != null) {
+            stream.stopped = true;
+            current = null;
+        }
+    }
+
+    public void stop(float fadeOutSeconds) {
+        Stream stream = current;
+        if (stream != null) {
+            stream.fadeTo(0f, fadeOutSeconds);
+            current = null;
+        }
+    }
+
+    /**
+     * Fades this sound out while the next one fades in over the same time
+     */
+    public void crossfadeTo(StreamingSound next, float seconds) {
+        stop(seconds);
+        next.play(seconds);
+    }
+
+    public boolean isPlaying() {
+        return current != null;
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        if (volume < -80f) volume = -80f;
+        if (volume >= 6f) volume = 6f;
+        this.volume = volume;
+    }
+
+    @Override
+    public float getVolume() {
+        return volume;
+    }
+
+    @Override
+    public void setPan(float pan) {
+        if (pan < -1f) {
+            pan = -1f;
+        } else if (pan > 1f) {
+            pan = 1f;
+        }
+        this.pan = pan;
+    }
+
+    @Override
+    public float getPan() {
+        return pan;
+    }
+
+    /**
+     * One playback: a decoder thread producing into a single-producer single-consumer ring
+     * and the mixer channel consuming from it
+     */
+    private class Stream implements MixerChannel, Runnable {
+        private final short[] ring;
+        private final int mask;
+        private volatile long writePosition;
+        private volatile long readPosition;
+        private volatile boolean decoded;
+        private volatile boolean stopped;
+
+        // fade state, target and step are written by the caller, gain only by the mixer thread
+        private volatile float fadeTarget = 1f;
+        private volatile float fadeStep;
+        private float fadeGain = 1f;
+
+        // resampler state, decoder thread only; kept across loop passes so the seam is interpolated too
+        private double resamplePhase;
+        private short previousLeft;
+        private short previousRight;
+
+        private Stream(int frames) {
+            ring = new short[frames * SoundMixer.CHANNELS];
+            mask = ring.length - 1;
+        }
+
+        private void start() {
+            Thread thread = new Thread(this, "d2d2-sound-stream");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void fadeTo(float target, float seconds) {
+            fadeStep = seconds <= 0f ? 1f : 1f / (seconds * SoundMixer.SAMPLE_RATE);
+            fadeTarget = target;
+        }
+
+        @Override
+        public void run() {
+            try {
+                do {
+                    decodeOnce();
+                } while (loop && !stopped && current == this);
+            } catch (UnsupportedAudioFileException | IOException e) {
+                log.error(e.getMessage(), e);
+            } finally {
+                decoded = true;
+            }
+        }
+
+        private void decodeOnce() throws UnsupportedAudioFileException, IOException {
+            try (AudioInputStream in = AudioSystem.getAudioInputStream(new BufferedInputStream(source.get()))) {
+                AudioFormat inFormat = in.getFormat();
+                int channels = inFormat.getChannels();
+                float rate = inFormat.getSampleRate();
+                AudioFormat pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, channels * 2, rate, false);
+
+                try (AudioInputStream pcm = AudioSystem.getAudioInputStream(pcmFormat, in)) {
+                    int frameSize = channels * 2;
+                    byte[] bytes = new byte[DECODE_CHUNK_BYTES / frameSize * frameSize];
+                    short[] out = new short[(int) (bytes.length / frameSize * (SoundMixer.SAMPLE_RATE / rate) + 2) * 2];
+
+                    double step = rate / SoundMixer.SAMPLE_RATE;
+                    double phase = resamplePhase;
+                    int filled = 0;
+
+                    int n;
+                    while (!stopped && (n = pcm.readNBytes(bytes, filled, bytes.length - filled)) > 0) {
+                        int total = filled + n;
+                        int frames = total / frameSize;
+                        int count = 0;
+
+                        for (int frame = 0; frame < frames; frame++) {
+                            int offset = frame * frameSize;
+                            short left = (short) ((bytes[offset] & 0xFF) | (bytes[offset + 1] << 8));
+                            short right = channels > 1 ? (short) ((bytes[offset + 2] & 0xFF) | (bytes[offset + 3] << 8)) : left;
+
+                            // linear resampling carried across chunk boundaries
+                            while (phase < 1.0) {
+                                out[count++] = (short) (previousLeft + (left - previousLeft) * phase);
+                                out[count++] = (short) (previousRight + (right - previousRight) * phase);
+                                phase += step;
+                            }
+                            phase -= 1.0;
+                            previousLeft = left;
+                            previousRight = right;
+                        }
+
+                        filled = total - frames * frameSize;
+                        System.arraycopy(bytes, frames * frameSize, bytes, 0, filled);
+
+                        write(out, count);
+                    }
+                    resamplePhase = phase;
+                }
+            }
+        }
+
+        private void write(short[] samples, int count) {
+            int offset = 0;
+            while (offset < count && !stopped) {
+                long free = ring.length - (writePosition - readPosition);
+                if (free == 0) {
+                    LockSupport.parkNanos(1_000_000);
+                    continue;
+                }
+
+                int chunk = (int) Math.min(free, count - offset);
+                long position = writePosition;
+                for (int i = 0; i < chunk; i++) {
+                    ring[(int) ((position + i) & mask)] = samples[offset + i];
+                }
+                offset += chunk;
+                writePosition = position + chunk;
+            }
+        }
+
+        @Override
+        public boolean mix(int[] mixBuffer, int frameLimit) {
+            if (stopped) return false;
+
+            long position = readPosition;
+            int available = (int) ((writePosition - position) / SoundMixer.CHANNELS);
+            if (available == 0) {
+                // underrun while decoding is just a gap, running dry after decoding is the end
+                return !decoded;
+            }
+
+            int frames = Math.min(frameLimit, available);
+            float leftGain = MixerChannel.leftGain(volume, pan);
+            float rightGain = MixerChannel.rightGain(volume, pan);
+            float target = fadeTarget;
+            float step = fadeStep;
+
+            for (int i = 0; i < frames; i++) {
+                if (fadeGain < target) {
+                    fadeGain = Math.min(target, fadeGain + step);
+                } else if (fadeGain > target) {
+                    fadeGain = Math.max(target, fadeGain - step);
+                }
+
+                mixBuffer[i * 2] += (int) (ring[(int) (position++ & mask)] * leftGain * fadeGain);
+                mixBuffer[i * 2 + 1] += (int) (ring[(int) (position++ & mask)] * rightGain * fadeGain);
+            }
+
+            readPosition = position;
+
+            return !(target == 0f && fadeGain == 0f);
+        }
+
+        @Override
+        public void release() {
+            stopped = true;
+            if (current == this) current = null;
+        }
+
+        @Override
+        public boolean isStealable() {
+            return false;
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
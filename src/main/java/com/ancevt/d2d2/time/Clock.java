@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2024 the original author or authors.
+ * See the notice.md file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ancevt.d2d2.time;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Time source for timers and other time-based code. Normally the system clock; in virtual mode
+ * time only moves when the engine advances it, so headless simulations can run faster than real time.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Clock {
+
+    private static volatile boolean virtual;
+    private static volatile long virtualNanos;
+
+    public static long currentTimeMillis() {
+        return virtual ? virtualNanos / 1_000_000L : System.currentTimeMillis();
+    }
+
+    /**
+     * Switching to virtual time continues from the current system time
+     */
+    public static void setVirtual(boolean value) {
+        if (value && !virtual) {
+            virtualNanos = System.currentTimeMillis() * 1_000_000L;
+        }
+        virtual = value;
+    }
+
+    public static boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Moves virtual time forward, has no effect on the system clock
+     */
+    public static void advance(long nanos) {
+        virtualNanos += nanos;
+    }
+}
@@ -40,7 +40,7 @@ public class Timer {
     @Getter
     private boolean loop;
 
-    private long startTime = System.currentTimeMillis();
+    private long startTime = Clock.currentTimeMillis();
 
     private boolean alive;
 
@@ -51,7 +51,7 @@ public class Timer {
 
     public void start() {
         alive = true;
-        startTime = System.currentTimeMillis();
+        startTime = Clock.currentTimeMillis();
         timers.add(this);
     }
 
@@ -88,7 +88,7 @@ public class Timer {
     public static void processTimers() {
         timers.forEach(timer -> {
             long delay = timer.delay;
-            long currentTime = System.currentTimeMillis();
+            long currentTime = Clock.currentTimeMillis();
             if (currentTime - timer.startTime >= delay) {
                 if (timer.alive) {
                     timer.func.accept(timer);
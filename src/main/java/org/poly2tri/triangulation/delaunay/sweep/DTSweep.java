@@ -1244,7 +1244,7 @@ public class DTSweep
      *       n4                    n4
      * </pre>
      */
-    private static void rotateTrianglePair( DelaunayTriangle t, 
+    public static void rotateTrianglePair( DelaunayTriangle t, 
                                             TriangulationPoint p, 
                                             DelaunayTriangle ot, 
                                             TriangulationPoint op )